@@ -28,6 +28,7 @@ import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
+import com.redisplay.app.network.HttpClient;
 import com.redisplay.app.utils.ConfigManager;
 
 public class ConfigActivity extends Activity {
@@ -37,6 +38,7 @@ public class ConfigActivity extends Activity {
     private EditText channelNameInput;
     private RadioGroup connectionTypeGroup;
     private RadioButton connectionTypeRemote;
+    private RadioButton connectionTypeWebSocket;
     private RadioButton connectionTypeInternal;
     private CheckBox homeScreenModeCheckbox;
     private CheckBox autoUpdateCheckbox;
@@ -82,6 +84,7 @@ public class ConfigActivity extends Activity {
         channelNameInput = (EditText) findViewById(R.id.configChannelName);
         connectionTypeGroup = (RadioGroup) findViewById(R.id.configConnectionType);
         connectionTypeRemote = (RadioButton) findViewById(R.id.configConnectionTypeRemote);
+        connectionTypeWebSocket = (RadioButton) findViewById(R.id.configConnectionTypeWebSocket);
         connectionTypeInternal = (RadioButton) findViewById(R.id.configConnectionTypeInternal);
         homeScreenModeCheckbox = (CheckBox) findViewById(R.id.configHomeScreenMode);
         autoUpdateCheckbox = (CheckBox) findViewById(R.id.configAutoUpdate);
@@ -184,7 +187,11 @@ public class ConfigActivity extends Activity {
                 configInternalServerLayout.setVisibility(View.VISIBLE);
             }
         } else {
-            connectionTypeRemote.setChecked(true);
+            if ("websocket".equals(connectionType)) {
+                connectionTypeWebSocket.setChecked(true);
+            } else {
+                connectionTypeRemote.setChecked(true);
+            }
             serverUrlInput.setVisibility(View.VISIBLE);
             if (channelNameLayout != null) {
                 channelNameLayout.setVisibility(View.VISIBLE);
@@ -318,7 +325,8 @@ public class ConfigActivity extends Activity {
     
     private void saveConfiguration() {
         // Get values from UI
-        String connectionType = connectionTypeInternal.isChecked() ? "internal" : "remote";
+        String connectionType = connectionTypeInternal.isChecked() ? "internal"
+            : connectionTypeWebSocket.isChecked() ? "websocket" : "remote";
         String serverUrl = serverUrlInput.getText().toString().trim();
         String channelName = channelNameInput != null ? channelNameInput.getText().toString().trim() : configManager.getChannelName();
         boolean homeScreenMode = homeScreenModeCheckbox.isChecked();
@@ -326,7 +334,7 @@ public class ConfigActivity extends Activity {
         boolean debugMode = debugModeCheckbox.isChecked();
         
         // Validate server URL (only if using remote connection)
-        if ("remote".equals(connectionType) && serverUrl.isEmpty()) {
+        if (!"internal".equals(connectionType) && serverUrl.isEmpty()) {
             Toast.makeText(this, "Server URL cannot be empty for remote connection", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -527,50 +535,31 @@ public class ConfigActivity extends Activity {
         }
         
         // Fetch server configuration in background
-        new Thread(new Runnable() {
+        final HttpClient client = HttpClient.getInstance(this);
+        boolean queued = client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
                     // Fetch channel config
                     String channelName = configManager.getChannelName();
                     String channelConfigUrl = serverUrl + "/api/channel-config/" + channelName;
-                    java.net.URL url = new java.net.URL(channelConfigUrl);
-                    java.net.HttpURLConnection conn = (java.net.HttpURLConnection) url.openConnection();
-                    conn.setConnectTimeout(5000);
-                    conn.setReadTimeout(5000);
+                    HttpClient.Response response = client.execute(
+                        HttpClient.Request.get(channelConfigUrl).timeouts(5000, 5000));
                     
                     java.util.Map<String, String> viewSchedules = new java.util.HashMap<String, String>();
                     org.json.JSONObject channelConfig = null;
                     
-                    if (conn.getResponseCode() == java.net.HttpURLConnection.HTTP_OK) {
-                        java.io.BufferedReader reader = new java.io.BufferedReader(
-                            new java.io.InputStreamReader(conn.getInputStream()));
-                        StringBuilder sb = new StringBuilder();
-                        String line;
-                        while ((line = reader.readLine()) != null) sb.append(line);
-                        reader.close();
-                        
-                        channelConfig = new org.json.JSONObject(sb.toString());
+                    if (response.code == java.net.HttpURLConnection.HTTP_OK) {
+                        channelConfig = new org.json.JSONObject(response.string());
                     }
-                    conn.disconnect();
                     
                     // Fetch all views to get schedule info
                     String viewsUrl = serverUrl + "/api/views";
-                    url = new java.net.URL(viewsUrl);
-                    conn = (java.net.HttpURLConnection) url.openConnection();
-                    conn.setConnectTimeout(5000);
-                    conn.setReadTimeout(5000);
+                    response = client.execute(HttpClient.Request.get(viewsUrl).timeouts(5000, 5000));
                     
-                    if (conn.getResponseCode() == java.net.HttpURLConnection.HTTP_OK) {
-                        java.io.BufferedReader reader = new java.io.BufferedReader(
-                            new java.io.InputStreamReader(conn.getInputStream()));
-                        StringBuilder sb = new StringBuilder();
-                        String line;
-                        while ((line = reader.readLine()) != null) sb.append(line);
-                        reader.close();
-                        
+                    if (response.code == java.net.HttpURLConnection.HTTP_OK) {
                         // /api/views returns an array of view objects
-                        org.json.JSONArray viewsArray = new org.json.JSONArray(sb.toString());
+                        org.json.JSONArray viewsArray = new org.json.JSONArray(response.string());
                         
                         // Build schedule map
                         for (int i = 0; i < viewsArray.length(); i++) {
@@ -623,7 +612,6 @@ public class ConfigActivity extends Activity {
                             viewSchedules.put(viewId, scheduleText.toString());
                         }
                     }
-                    conn.disconnect();
                     
                     // Store data for UI thread
                     final org.json.JSONObject finalChannelConfig = channelConfig;
@@ -752,7 +740,14 @@ public class ConfigActivity extends Activity {
                     });
                 }
             }
-        }).start();
+        });
+        if (!queued) {
+            if (configInfoMessage != null) {
+                configInfoMessage.setText("Error loading server configuration:\nToo many requests in progress, try again shortly.");
+                configInfoMessage.setVisibility(android.view.View.VISIBLE);
+            }
+            hideAllTables();
+        }
     }
     
     private void hideAllTables() {
@@ -1,7 +1,6 @@
 package com.redisplay.app;
 
 import android.view.View;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.HashMap;
@@ -10,10 +9,44 @@ import java.util.Map;
 public class ContentManager {
     private Map<String, ContentModule> modules = new HashMap<String, ContentModule>();
     private ContentModule currentModule = null;
-    private MainActivity activity;
+    private volatile MainActivity activity; // Read by the decode thread; null after cleanup
     private JSONObject savedViewState = null; // Store view state when screen turns off
     private JSONObject currentContentItem = null; // Track current content item
     private Runnable pendingDisplayRunnable = null; // Track pending display runnable to prevent accumulation
+    private static final long SLOW_DECODE_MICROS = 16000; // Longer than a frame; worth logging
+    private static final long DECODE_STATS_LOG_INTERVAL = 500; // Events between summary log lines
+    private static final long TRANSITION_GRACE_MS = 500; // Fade-out end is assumed after its duration plus this
+    
+    // Single-slot mailbox between the decode thread and the UI thread: the newest view
+    // waiting to be displayed. A newer view replaces it, so a burst of view changes
+    // (rapid taps, rotation plus override) displays only the last one.
+    private final java.util.concurrent.atomic.AtomicReference<ViewEvent> mailbox =
+        new java.util.concurrent.atomic.AtomicReference<>();
+    private static final java.util.concurrent.atomic.AtomicLong supersededEvents = new java.util.concurrent.atomic.AtomicLong();
+    
+    // Cross-fade state, UI thread only. While a transition is in flight the mailbox is
+    // left alone; when the old view has faded out, the newest view in it is displayed.
+    private boolean transitionInFlight = false;
+    private boolean transitionFadedOut = false;
+    private JSONObject transitionTarget = null; // Content the transition will display
+    private long transitionId = 0; // Invalidates callbacks of an abandoned transition
+    
+    // Decodes events in arrival order, off the UI thread
+    private final java.util.concurrent.ExecutorService decoder = java.util.concurrent.Executors.newSingleThreadExecutor(
+        new java.util.concurrent.ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "event-decode");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    // Decode counters are kept for the process, across activity restarts, like the
+    // connection stats they are reported next to
+    private static final Object decodeStatsLock = new Object();
+    private static long decodedEvents; // guarded by decodeStatsLock
+    private static long decodeMicrosTotal; // guarded by decodeStatsLock
+    private static long decodeMicrosMax; // guarded by decodeStatsLock
     
     public ContentManager(MainActivity activity) {
         this.activity = activity;
@@ -43,55 +76,174 @@ public class ContentManager {
         android.util.Log.d("ContentManager", "Registered module: " + type);
     }
     
-    public void handleEvent(String jsonData) {
-        long eventStart = System.currentTimeMillis();
+    /**
+     * Decode an event message on the decode thread and hand it to the UI thread once it
+     * is ready to render. Called from connection threads; events keep their order.
+     */
+    public void submitEvent(final String jsonData) {
+        if (jsonData == null || jsonData.trim().isEmpty()) {
+            android.util.Log.w("ContentManager", "Received empty or null event data");
+            return;
+        }
         try {
-            if (jsonData == null || jsonData.trim().isEmpty()) {
-                android.util.Log.w("ContentManager", "Received empty or null event data");
+            decoder.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ViewEvent event = ViewEvent.decode(jsonData);
+                    if (event != null) {
+                        recordDecode(event, jsonData.length());
+                        deliver(event);
+                    }
+                }
+            });
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            // Decoder shut down by cleanup()
+        }
+    }
+    
+    // Decode thread: hand a decoded event to the UI thread
+    private void deliver(final ViewEvent event) {
+        MainActivity target = activity;
+        if (target == null) {
+            return; // Cleaned up while decoding
+        }
+        if (isDisplayEvent(event)) {
+            ViewEvent previous = mailbox.getAndSet(event);
+            if (previous != null) {
+                // Never displayed; whoever was going to take it takes this one instead
+                supersededEvents.incrementAndGet();
                 return;
             }
-            
-            JSONObject data = new JSONObject(jsonData);
-            
-            // Check for new SSE format: initial_view or view_change
-            String eventType = data.optString("type", "");
-            if ("initial_view".equals(eventType) || "view_change".equals(eventType)) {
-                handleViewEvent(data);
-                return;
+            target.runOnUiThread(drainMailbox);
+            return;
+        }
+        if (event.kind == ViewEvent.KIND_VIEW_UPDATE && foldIntoMailbox(event)) {
+            return;
+        }
+        // Errors, status and patches for the view on screen are handled in order
+        target.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                if (activity != null) {
+                    activity.prepareForViewEvent();
+                    handle(event);
+                }
             }
-            // Check if this is a playlist update event (has both playback and playlist)
-            else if (data.has("playback") && data.has("playlist")) {
-                handlePlaylistEvent(data);
-                return;
-            } 
-            // Check if this is a direct content event (has type field)
-            else if (data.has("type")) {
-                handleDirectContentEvent(data);
-                return;
+        });
+    }
+    
+    // Events that only replace what is shown, so a newer one makes them pointless.
+    // Screen control is an action and is never dropped.
+    private static boolean isDisplayEvent(ViewEvent event) {
+        return (event.kind == ViewEvent.KIND_VIEW || event.kind == ViewEvent.KIND_CONTENT)
+            && event.contentItem != null && !"screen_control".equals(event.contentItem.optString("type", ""));
+    }
+    
+    // A patch for the view waiting in the mailbox is applied to it there; handled on the UI
+    // thread it would find that view not yet displayed and be lost
+    private boolean foldIntoMailbox(ViewEvent update) {
+        while (true) {
+            ViewEvent queued = mailbox.get();
+            if (queued == null || !update.viewId.equals(queued.viewId)) {
+                return false;
             }
-            // Check if it's just a playback update (no playlist change)
-            else if (data.has("playback")) {
-                handlePlaybackUpdate(data);
-                return;
+            ViewEvent patched;
+            try {
+                patched = queued.withPatch(update.patch);
+            } catch (org.json.JSONException e) {
+                return false;
             }
-            // Check if it has activeContent array (alternative format)
-            else if (data.has("activeContent")) {
-                handleActiveContentEvent(data);
+            if (patched == null) {
+                return false;
+            }
+            if (mailbox.compareAndSet(queued, patched)) {
+                return true;
+            }
+        }
+    }
+    
+    // UI thread: display the newest waiting view, unless a transition is in flight, in
+    // which case it is picked up when the old view has faded out
+    private final Runnable drainMailbox = new Runnable() {
+        @Override
+        public void run() {
+            if (activity == null || transitionInFlight) {
                 return;
             }
-            // Unknown format - ignore silently
-            else {
-                // Unknown event format - ignore
+            ViewEvent event = mailbox.getAndSet(null);
+            if (event != null) {
+                activity.prepareForViewEvent();
+                handle(event);
+            }
+        }
+    };
+    
+    private void handle(ViewEvent event) {
+        try {
+            switch (event.kind) {
+                case ViewEvent.KIND_ERROR:
+                    activity.showError(event.errorMessage);
+                    break;
+                case ViewEvent.KIND_VIEW_UPDATE:
+                    handleViewUpdateEvent(event);
+                    break;
+                case ViewEvent.KIND_PLAYLIST:
+                    if (event.contentItem != null) {
+                        activity.updateDebugBar(event.viewId, event.viewType);
+                        displayContent(event.contentItem);
+                    }
+                    if (event.playlistSize > 0) {
+                        activity.updateStatus("Playing item " + (event.playlistIndex + 1) + " of " + event.playlistSize);
+                    }
+                    break;
+                default:
+                    activity.updateDebugBar(event.viewId, event.viewType);
+                    displayContent(event.contentItem);
+                    break;
             }
-        } catch (org.json.JSONException e) {
-            android.util.Log.e("ContentManager", "JSON parse error: " + e.getMessage() + " Data: " + jsonData);
-            activity.showError("JSON parse error: " + e.getMessage());
         } catch (Exception e) {
             android.util.Log.e("ContentManager", "Event error: " + e.getMessage(), e);
             activity.showError("Event error: " + e.getMessage());
         }
     }
     
+    private void recordDecode(ViewEvent event, int length) {
+        long micros = event.decodeNanos / 1000;
+        boolean logSummary;
+        synchronized (decodeStatsLock) {
+            decodedEvents++;
+            decodeMicrosTotal += micros;
+            decodeMicrosMax = Math.max(decodeMicrosMax, micros);
+            logSummary = decodedEvents % DECODE_STATS_LOG_INTERVAL == 0;
+        }
+        if (micros > SLOW_DECODE_MICROS) {
+            android.util.Log.d("ContentManager", "[Perf] Decoded " + length + " chars (" + event.viewType + ") in " + micros / 1000 + "ms");
+        }
+        if (logSummary) {
+            // Also visible on displays that do not run the internal server's /api/stats
+            android.util.Log.i("ContentManager", "[Perf] Decode stats: " + getDecodeStats());
+        }
+    }
+    
+    /**
+     * Decode counters: events, average and max decode time, and view events that were
+     * superseded by a newer one before they were displayed. Reported in /api/stats.
+     */
+    public static JSONObject getDecodeStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            synchronized (decodeStatsLock) {
+                stats.put("events", decodedEvents);
+                stats.put("avgDecodeMicros", decodedEvents > 0 ? decodeMicrosTotal / decodedEvents : 0);
+                stats.put("maxDecodeMicros", decodeMicrosMax);
+            }
+            stats.put("supersededEvents", supersededEvents.get());
+        } catch (Exception e) {
+            android.util.Log.e("ContentManager", "Error building decode stats: " + e.getMessage());
+        }
+        return stats;
+    }
+    
     private void handleScreenControlEvent(JSONObject data) {
         try {
             String action = data.optString("action", "");
@@ -108,122 +260,52 @@ public class ContentManager {
         }
     }
     
-    private void handlePlaybackUpdate(JSONObject data) {
-        // Playback updates are handled by view change events
-        // This method is kept for backward compatibility
-    }
-    
-    private void handleActiveContentEvent(JSONObject data) {
-        try {
-            JSONArray activeContent = data.getJSONArray("activeContent");
-            if (activeContent.length() > 0) {
-                JSONObject contentItem = activeContent.getJSONObject(0);
-                displayContent(contentItem);
-            }
-        } catch (Exception e) {
-            activity.showError("Active content error: " + e.getMessage());
-        }
-    }
-    
-    private void handlePlaylistEvent(JSONObject data) {
+    // Apply a merge patch to the view on screen and redraw it in place, without a cross-fade
+    private void handleViewUpdateEvent(ViewEvent event) {
         try {
-            JSONObject playback = data.optJSONObject("playback");
-            if (playback == null) {
+            String viewId = event.viewId;
+            JSONObject patch = event.patch;
+            JSONObject currentView = currentContentItem != null ? currentContentItem.optJSONObject("view") : null;
+            if (currentView == null || !viewId.equals(currentView.optString("id", null))) {
+                // Not the view we are showing; the next view_change carries the full view
                 return;
             }
             
-            int currentIndex = playback.optInt("currentIndex", -1);
-            boolean paused = playback.optBoolean("paused", false);
-            long timeRemaining = playback.optLong("timeRemainingMs", 0);
-            int totalItems = playback.optInt("totalItems", 0);
-            
-            // Countdown removed - views will change based on rotateAfter timing from server
-            
-            // Get current content item from playlist
-            JSONArray playlist = data.optJSONArray("playlist");
-            if (playlist != null && currentIndex >= 0 && currentIndex < playlist.length()) {
-                JSONObject contentItem = playlist.getJSONObject(currentIndex);
-                // Update debug bar with playlist item info
-                try {
-                    String viewType = contentItem.optString("type", null);
-                    String viewId = contentItem.optString("id", null);
-                    activity.updateDebugBar(viewId, viewType);
-                } catch (Exception e) {
-                    // Ignore errors in debug bar update
-                }
-                displayContent(contentItem);
-            }
-            
-            if (totalItems > 0) {
-                activity.updateStatus("Playing item " + (currentIndex + 1) + " of " + totalItems);
-            }
-        } catch (Exception e) {
-            activity.showError("Playlist error: " + e.getMessage());
-        }
-    }
-    
-    private void handleViewEvent(JSONObject data) {
-        try {
-            // Extract view object
-            if (!data.has("view")) {
-                activity.showError("View event missing 'view' field");
+            JSONObject view = com.redisplay.app.utils.JsonMergePatch.apply(
+                new JSONObject(currentView.toString()), patch);
+            JSONObject metadata = view.optJSONObject("metadata");
+            String viewType = metadata != null ? metadata.optString("type", null) : null;
+            if (viewType == null) {
+                activity.showError("Patched view missing metadata type");
                 return;
             }
             
-            JSONObject view = data.getJSONObject("view");
+            JSONObject contentItem = new JSONObject();
+            contentItem.put("type", viewType);
+            contentItem.put("view", view);
             
-            // Check if metadata exists
-            if (!view.has("metadata")) {
-                activity.showError("View missing 'metadata' field");
+            if (transitionInFlight) {
+                // The view is still fading in; the transition displays the patched version
+                currentContentItem = contentItem;
+                transitionTarget = contentItem;
                 return;
             }
             
-            JSONObject metadata = view.getJSONObject("metadata");
-            
-            if (!metadata.has("type")) {
-                activity.showError("Metadata missing 'type' field");
+            ContentModule module = modules.get(viewType);
+            if (module == null || module != currentModule) {
+                // Type changed - treat it like a regular view change
+                activity.updateDebugBar(viewId, viewType);
+                displayContent(contentItem);
                 return;
             }
             
-            String viewType = metadata.getString("type");
-            String viewId = view.optString("id", null);
-            
-            // Create a content item structure that modules can understand
-            JSONObject contentItem = new JSONObject();
-            contentItem.put("type", viewType);
-            contentItem.put("view", view);
-            
-            // Update debug bar
-            activity.updateDebugBar(viewId, viewType);
-            
-            displayContent(contentItem);
-        } catch (org.json.JSONException e) {
-            android.util.Log.e("ContentManager", "JSON error in handleViewEvent: " + e.getMessage(), e);
-            activity.showError("View event JSON error: " + e.getMessage());
-        } catch (Exception e) {
-            android.util.Log.e("ContentManager", "Error in handleViewEvent: " + e.getMessage(), e);
-            activity.showError("View event error: " + e.getMessage());
-        }
-    }
-    
-    private void handleDirectContentEvent(JSONObject contentItem) {
-        // Try to extract view info for debug bar
-        try {
-            String viewType = contentItem.optString("type", null);
-            String viewId = null;
-            if (contentItem.has("view")) {
-                JSONObject view = contentItem.getJSONObject("view");
-                viewId = view.optString("id", null);
-                if (viewType == null && view.has("metadata")) {
-                    JSONObject metadata = view.getJSONObject("metadata");
-                    viewType = metadata.optString("type", null);
-                }
-            }
-            activity.updateDebugBar(viewId, viewType);
+            currentContentItem = contentItem;
+            module.hide(activity, activity.getContentContainer());
+            module.display(activity, contentItem, activity.getContentContainer());
         } catch (Exception e) {
-            // Ignore errors in debug bar update
+            android.util.Log.e("ContentManager", "Error in handleViewUpdateEvent: " + e.getMessage(), e);
+            activity.showError("View update error: " + e.getMessage());
         }
-        displayContent(contentItem);
     }
     
     void displayContent(JSONObject contentItem) {
@@ -252,53 +334,17 @@ public class ContentManager {
                     String availableTypes = modules.keySet().toString();
                     activity.showError("Unknown content type: " + type + " (available: " + availableTypes + ")");
                 }
+            } else if (transitionInFlight) {
+                // Shown instead of the view the cross-fade was heading to, and newer than
+                // anything waiting in the mailbox
+                transitionTarget = contentItem;
+                if (mailbox.getAndSet(null) != null) {
+                    supersededEvents.incrementAndGet();
+                }
             } else {
                 // Regular content - use container cross-fade
                 if (currentModule != null) {
-                    // Fade out container with old content
-                    final ContentModule oldModule = currentModule; // Capture old module reference
-                    activity.fadeOutContent(new Runnable() {
-                        @Override
-                        public void run() {
-                            // After fade out completes, destroy old module components
-                            if (oldModule != null) {
-                                oldModule.hide(activity, activity.getContentContainer());
-                            }
-                            // Force hide and clear all content views
-                            activity.hideAllContentViews();
-                            activity.clearAllContentViews();
-                            
-                            // Cancel any pending display runnable to prevent accumulation
-                            if (pendingDisplayRunnable != null) {
-                                activity.getHandler().removeCallbacks(pendingDisplayRunnable);
-                            }
-                            
-                            // Small delay to ensure cleanup is complete before showing new content
-                            pendingDisplayRunnable = new Runnable() {
-                                @Override
-                                public void run() {
-                                    pendingDisplayRunnable = null; // Clear reference
-                                    ContentModule module = modules.get(type);
-                                    if (module != null) {
-                                        currentModule = module;
-                                        // Display new content
-                                        module.display(activity, contentItem, activity.getContentContainer());
-                                        // Ensure container and views are at alpha 0
-                                        activity.getContentContainer().setAlpha(0.0f);
-                                        // Bring debug bar to front before fade in
-                                        if (activity.getDebugBar() != null) {
-                                            activity.getDebugBar().bringToFront();
-                                        }
-                                        // Start fade in immediately
-                                        activity.fadeInContent();
-                                    } else {
-                                        activity.showError("Unknown content type: " + type);
-                                    }
-                                }
-                            };
-                            activity.getHandler().postDelayed(pendingDisplayRunnable, 50); // Small delay to ensure cleanup
-                        }
-                    });
+                    startTransition(contentItem);
                 } else {
                     // No current module, just fade in the new one
                     activity.hideAllContentViews();
@@ -317,6 +363,100 @@ public class ContentManager {
         }
     }
     
+    // Fade out the current module, then display the transition target (or a newer view
+    // from the mailbox). The fade-out end normally comes from the animation; the
+    // fallback covers an animation that never runs, e.g. while the container is hidden.
+    private void startTransition(JSONObject contentItem) {
+        transitionInFlight = true;
+        transitionFadedOut = false;
+        transitionTarget = contentItem;
+        final long transition = ++transitionId;
+        final ContentModule oldModule = currentModule; // Capture old module reference
+        final Runnable fadedOut = new Runnable() {
+            @Override
+            public void run() {
+                if (activity == null || transition != transitionId || transitionFadedOut) {
+                    return;
+                }
+                transitionFadedOut = true;
+                activity.getHandler().removeCallbacks(this);
+                // After fade out completes, destroy old module components
+                if (oldModule != null) {
+                    oldModule.hide(activity, activity.getContentContainer());
+                }
+                // Force hide and clear all content views
+                activity.hideAllContentViews();
+                activity.clearAllContentViews();
+                
+                // Small delay to ensure cleanup is complete before showing new content
+                pendingDisplayRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        pendingDisplayRunnable = null; // Clear reference
+                        if (activity != null && transition == transitionId) {
+                            finishTransition();
+                        }
+                    }
+                };
+                activity.getHandler().postDelayed(pendingDisplayRunnable, 50);
+            }
+        };
+        activity.fadeOutContent(fadedOut);
+        activity.getHandler().postDelayed(fadedOut, activity.getFadeOutDuration() + TRANSITION_GRACE_MS);
+    }
+    
+    private void finishTransition() {
+        // Views that arrived during the transition replace the one it was heading to
+        ViewEvent newer = mailbox.getAndSet(null);
+        if (newer != null) {
+            supersededEvents.incrementAndGet();
+            activity.prepareForViewEvent();
+            activity.updateDebugBar(newer.viewId, newer.viewType);
+            transitionTarget = newer.contentItem;
+            currentContentItem = newer.contentItem;
+        }
+        JSONObject contentItem = transitionTarget;
+        transitionInFlight = false;
+        transitionTarget = null;
+        
+        String type = contentItem.optString("type", null);
+        ContentModule module = modules.get(type);
+        if (module != null) {
+            currentModule = module;
+            // Display new content
+            module.display(activity, contentItem, activity.getContentContainer());
+            // Ensure container and views are at alpha 0
+            activity.getContentContainer().setAlpha(0.0f);
+            // Bring debug bar to front before fade in
+            if (activity.getDebugBar() != null) {
+                activity.getDebugBar().bringToFront();
+            }
+            // Start fade in immediately
+            activity.fadeInContent();
+        } else {
+            currentModule = null;
+            activity.showError("Unknown content type: " + type);
+        }
+    }
+    
+    // Drop an in-flight transition whose result is being replaced without a cross-fade
+    private void abandonTransition() {
+        if (!transitionInFlight) {
+            return;
+        }
+        transitionId++;
+        transitionInFlight = false;
+        transitionTarget = null;
+        if (pendingDisplayRunnable != null && activity != null) {
+            activity.getHandler().removeCallbacks(pendingDisplayRunnable);
+            pendingDisplayRunnable = null;
+        }
+        // Anything that waited for the transition is displayed next
+        if (activity != null) {
+            activity.getHandler().post(drainMailbox);
+        }
+    }
+    
     public void saveCurrentViewState() {
         // Save the current view state before screen turns off
         if (currentContentItem != null && !"screen_control".equals(currentContentItem.optString("type", ""))) {
@@ -338,6 +478,7 @@ public class ContentManager {
                 boolean isScreenControl = "screen_control".equals(type);
                 
                 if (!isScreenControl) {
+                    abandonTransition();
                     currentContentItem = savedViewState;
                     
                     // Hide current module if any
@@ -370,6 +511,11 @@ public class ContentManager {
     }
 
     public void cleanup() {
+        decoder.shutdownNow();
+        mailbox.set(null);
+        transitionId++;
+        transitionInFlight = false;
+        
         // Cancel any pending display runnable
         if (pendingDisplayRunnable != null && activity != null && activity.getHandler() != null) {
             activity.getHandler().removeCallbacks(pendingDisplayRunnable);
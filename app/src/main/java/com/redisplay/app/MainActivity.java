@@ -33,13 +33,16 @@ import android.widget.LinearLayout;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONException;
 
 import com.redisplay.app.utils.GradientHelper;
 import com.redisplay.app.utils.QuadrantDetector;
 import com.redisplay.app.utils.RippleView;
 import com.redisplay.app.utils.ConfigManager;
 import com.redisplay.app.network.ConnectionProvider;
+import com.redisplay.app.network.HttpClient;
 import com.redisplay.app.network.SseConnectionProvider;
+import com.redisplay.app.network.WebSocketConnectionProvider;
 import com.redisplay.app.network.InternalServerConnectionProvider;
 import com.redisplay.app.server.InternalHttpServer;
 import com.redisplay.app.server.InternalViewManager;
@@ -51,12 +54,8 @@ import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.security.cert.X509Certificate;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -124,7 +123,6 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
     private String serverUrl;
     private ConfigManager configManager;
     private ConnectionProvider connectionProvider;
-    private static final int RECONNECT_DELAY = 5000; // 5 seconds
     
     // Internal server components (singleton instances)
     private static InternalViewManager internalViewManager;
@@ -471,13 +469,20 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                 internalHttpServer // Pass the singleton server instance
             );
         } else {
-            // Use remote connection (SSE)
+            // Use remote connection (SSE, or WebSocket if selected)
             if (serverUrl != null && !serverUrl.isEmpty()) {
                 String channel = currentChannel != null ? currentChannel : configManager.getChannelName();
-                if (BuildConfig.DEBUG) {
-                    Log.d(TAG, "Using SSE connection: " + serverUrl + " (channel: " + channel + ")");
+                if ("websocket".equals(connectionType)) {
+                    if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "Using WebSocket connection: " + serverUrl + " (channel: " + channel + ")");
+                    }
+                    connectionProvider = new WebSocketConnectionProvider(serverUrl, channel, this);
+                } else {
+                    if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "Using SSE connection: " + serverUrl + " (channel: " + channel + ")");
+                    }
+                    connectionProvider = new SseConnectionProvider(serverUrl, channel, this);
                 }
-                connectionProvider = new SseConnectionProvider(serverUrl, channel, this);
             } else {
                 Log.w(TAG, "No server URL configured");
                 showError("No server URL configured. Please configure in settings (long-press middle center).");
@@ -810,19 +815,20 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
             String newConnectionType = configManager.getConnectionType();
             String newServerUrl = configManager.getServerUrl();
             
-            // Check if connection type changed (remote <-> internal)
-            boolean connectionTypeChanged = false;
-            if ("internal".equals(newConnectionType) && !(connectionProvider instanceof InternalServerConnectionProvider)) {
-                connectionTypeChanged = true;
-            } else if (!"internal".equals(newConnectionType) && connectionProvider instanceof InternalServerConnectionProvider) {
-                connectionTypeChanged = true;
+            // Check if connection type changed (remote <-> websocket <-> internal)
+            boolean connectionTypeChanged;
+            if ("internal".equals(newConnectionType)) {
+                connectionTypeChanged = !(connectionProvider instanceof InternalServerConnectionProvider);
+            } else if ("websocket".equals(newConnectionType)) {
+                connectionTypeChanged = !(connectionProvider instanceof WebSocketConnectionProvider);
+            } else {
+                connectionTypeChanged = !(connectionProvider instanceof SseConnectionProvider);
             }
             
             // Reinitialize connection if settings changed
             if (connectionTypeChanged ||
                 (serverUrl == null || !serverUrl.equals(newServerUrl)) || 
-                (connectionProvider == null) ||
-                (!"internal".equals(newConnectionType) && !(connectionProvider instanceof SseConnectionProvider))) {
+                (connectionProvider == null)) {
                 serverUrl = newServerUrl;
                 Log.d(TAG, "Config changed, reinitializing connection (type: " + newConnectionType + ")");
                 initializeConnection();
@@ -854,6 +860,11 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
         if (connectionProvider != null) {
             connectionProvider.disconnect();
         }
+        
+        // Persist rotation state now; the process may be killed while paused
+        if (internalViewManager != null) {
+            internalViewManager.flushPlaybackState();
+        }
     }
     
     private void hideSystemUI() {
@@ -965,6 +976,14 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
         });
     }
 
+    // Called on the UI thread before ContentManager renders a decoded event
+    void prepareForViewEvent() {
+        // Hide QR code when processing view events
+        if (qrCodeImage != null) {
+            qrCodeImage.setVisibility(View.GONE);
+        }
+    }
+    
     @Override
     public void onMessageReceived(final String message) {
         if (message == null || message.trim().isEmpty()) {
@@ -1034,16 +1053,8 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                 }
             }
             
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    // Hide QR code when processing view events
-                    if (qrCodeImage != null) {
-                        qrCodeImage.setVisibility(View.GONE);
-                    }
-                    contentManager.handleEvent(message);
-                }
-            });
+            // Parsed on ContentManager's decode thread; only the decoded event reaches the UI thread
+            contentManager.submitEvent(message);
         } else {
             Log.d(TAG, "Ignoring event - screen is off");
         }
@@ -1342,26 +1353,20 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
         if (BuildConfig.DEBUG) {
             Log.d(TAG, "loadImage called with URL: " + imageUrl);
         }
-        new Thread(new Runnable() {
+        final HttpClient client = HttpClient.getInstance(this);
+        client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
                     if (BuildConfig.DEBUG) {
                         Log.d(TAG, "Opening connection to: " + imageUrl);
                     }
-                    URL url = new URL(imageUrl);
                     // All images now come through server proxy (HTTP), no SSL needed
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setConnectTimeout(10000);
-                    connection.setReadTimeout(10000);
-                    connection.connect();
-                    
-                    int responseCode = connection.getResponseCode();
-                    Log.d(TAG, "Image response code: " + responseCode);
+                    HttpClient.Response response = client.execute(HttpClient.Request.get(imageUrl));
+                    Log.d(TAG, "Image response code: " + response.code + (response.fromCache ? " (cached)" : ""));
                     
-                    if (responseCode == HttpURLConnection.HTTP_OK) {
-                        InputStream input = connection.getInputStream();
-                        final Bitmap bitmap = BitmapFactory.decodeStream(input);
+                    if (response.code == HttpURLConnection.HTTP_OK) {
+                        final Bitmap bitmap = BitmapFactory.decodeByteArray(response.body, 0, response.body.length);
                         
                     if (bitmap != null) {
                     runOnUiThread(new Runnable() {
@@ -1382,7 +1387,7 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                     e.printStackTrace();
                 }
             }
-        }).start();
+        });
     }
     
     public void showError(final String message) {
@@ -1417,7 +1422,8 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
     }
     
     private void fetchConfiguration() {
-        new Thread(new Runnable() {
+        final HttpClient client = HttpClient.getInstance(this);
+        client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -1449,19 +1455,11 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                         Log.d(TAG, "Fetching channels from: " + channelsUrl);
                     }
                     
-                    URL url = new URL(channelsUrl);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setConnectTimeout(5000);
-                    conn.setReadTimeout(5000);
+                    HttpClient.Response channelsResponse = client.execute(
+                        HttpClient.Request.get(channelsUrl).timeouts(5000, 5000));
                     
-                    if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                        StringBuilder sb = new StringBuilder();
-                        String line;
-                        while ((line = reader.readLine()) != null) sb.append(line);
-                        reader.close();
-                        
-                        JSONObject channelsConfig = new JSONObject(sb.toString());
+                    if (channelsResponse.code == HttpURLConnection.HTTP_OK) {
+                        JSONObject channelsConfig = new JSONObject(channelsResponse.string());
                         if (channelsConfig.has("channels")) {
                              JSONObject channels = channelsConfig.getJSONObject("channels");
                              // Use configured channel name, or fallback to "public", "test", or first available
@@ -1479,16 +1477,10 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                              // 1. Fetch Views metadata to build viewNamesMap
                              try {
                                  String viewsUrl = baseUrl + "/api/views";
-                                 URL vUrl = new URL(viewsUrl);
-                                 HttpURLConnection vConn = (HttpURLConnection) vUrl.openConnection();
-                                 if (vConn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                                     BufferedReader vReader = new BufferedReader(new InputStreamReader(vConn.getInputStream()));
-                                     StringBuilder vSb = new StringBuilder();
-                                     while ((line = vReader.readLine()) != null) vSb.append(line);
-                                     vReader.close();
-                                     
+                                 HttpClient.Response vResponse = client.execute(HttpClient.Request.get(viewsUrl));
+                                 if (vResponse.code == HttpURLConnection.HTTP_OK) {
                                      // Parse views - could be JSONArray or JSONObject
-                                     String viewsResponse = vSb.toString();
+                                     String viewsResponse = vResponse.string();
                                      int viewCount = 0;
                                      
                                      try {
@@ -1586,13 +1578,11 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                                          }
                                      }
                                  }
-                                 vConn.disconnect();
                              } catch (Exception e2) {
                                  Log.e(TAG, "Error parsing views JSON: " + e2.getMessage());
             }
         }
                     }
-                    conn.disconnect();
                     
                     // 2. Fetch Channel Config for Quadrants
                     String configUrl = baseUrl + "/api/channel-config/" + currentChannel;
@@ -1600,19 +1590,11 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                         Log.d(TAG, "Fetching config from: " + configUrl);
                     }
                     
-                    url = new URL(configUrl);
-                    conn = (HttpURLConnection) url.openConnection();
-                    conn.setConnectTimeout(5000);
-                    conn.setReadTimeout(5000);
+                    HttpClient.Response configResponse = client.execute(
+                        HttpClient.Request.get(configUrl).timeouts(5000, 5000));
                     
-                    if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                        StringBuilder sb = new StringBuilder();
-                        String line;
-                        while ((line = reader.readLine()) != null) sb.append(line);
-                        reader.close();
-                        
-                        JSONObject config = new JSONObject(sb.toString());
+                    if (configResponse.code == HttpURLConnection.HTTP_OK) {
+                        JSONObject config = new JSONObject(configResponse.string());
                         if (config.has("quadrants")) {
                             JSONObject quadrants = config.getJSONObject("quadrants");
                             quadrantMap.clear();
@@ -1626,13 +1608,12 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                             }
                         }
                     }
-                    conn.disconnect();
                     
                 } catch (Exception e) {
                     Log.e(TAG, "Error fetching configuration: " + e.getMessage(), e);
         }
             }
-        }).start();
+        });
     }
 
     private void handleTap(float x, float y) {
@@ -1777,8 +1758,30 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
         }
     }
     
+    // Send a command over the display's own connection if it can carry one
+    private boolean sendCommandOverConnection(String type, String quadrant) {
+        ConnectionProvider provider = connectionProvider;
+        if (provider == null) {
+            return false;
+        }
+        try {
+            JSONObject command = new JSONObject();
+            command.put("type", type);
+            if (quadrant != null) {
+                command.put("quadrant", quadrant);
+            }
+            return provider.sendCommand(command);
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+    
     private void triggerQuadrantTap(final String quadrant) {
-        new Thread(new Runnable() {
+        if (sendCommandOverConnection("tap", quadrant)) {
+            return;
+        }
+        final HttpClient client = HttpClient.getInstance(this);
+        boolean queued = client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -1793,34 +1796,26 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                     if (BuildConfig.DEBUG) {
                         Log.d(TAG, "Sending tap: " + urlString + " payload: " + quadrant);
                     }
-                    URL url = new URL(urlString);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("POST");
-                    conn.setRequestProperty("Content-Type", "application/json");
-                    conn.setConnectTimeout(5000);
-                    conn.setReadTimeout(5000);
-                    conn.setDoOutput(true);
-                    
                     String jsonInputString = "{\"quadrant\": \"" + quadrant + "\"}";
-                    
-                    java.io.OutputStream os = conn.getOutputStream();
-                    byte[] input = jsonInputString.getBytes("utf-8");
-                    os.write(input, 0, input.length);
-                    os.close();
-                    
-                    int responseCode = conn.getResponseCode();
-                    Log.d(TAG, "Tap response: " + responseCode);
-                    
-                    conn.disconnect();
+                    HttpClient.Response response = client.execute(HttpClient.Request.post(urlString,
+                        "application/json", jsonInputString.getBytes("utf-8")).timeouts(5000, 5000));
+                    Log.d(TAG, "Tap response: " + response.code);
                 } catch (Exception e) {
                     Log.e(TAG, "Error triggering tap: " + e.getMessage());
                 }
             }
-        }).start();
+        });
+        if (!queued) {
+            Toast.makeText(this, "Too many requests pending, tap not sent", Toast.LENGTH_SHORT).show();
+        }
     }
 
     private void triggerViewNavigation(final String action) {
-        new Thread(new Runnable() {
+        if (sendCommandOverConnection(action, null)) {
+            return;
+        }
+        final HttpClient client = HttpClient.getInstance(this);
+        boolean queued = client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -1835,20 +1830,17 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
                     if (BuildConfig.DEBUG) {
                         Log.d(TAG, "Navigating: " + urlString);
                     }
-                    URL url = new URL(urlString);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("POST");
-                    conn.setConnectTimeout(5000);
-                    conn.setReadTimeout(5000);
-                    
-                    int responseCode = conn.getResponseCode();
-                    Log.d(TAG, "Navigation response: " + responseCode);
-                    conn.disconnect();
+                    HttpClient.Response response = client.execute(
+                        HttpClient.Request.post(urlString, null, null).timeouts(5000, 5000));
+                    Log.d(TAG, "Navigation response: " + response.code);
                 } catch (Exception e) {
                     Log.e(TAG, "Error triggering navigation: " + e.getMessage());
                 }
             }
-        }).start();
+        });
+        if (!queued) {
+            Toast.makeText(this, "Too many requests pending, " + action + " not sent", Toast.LENGTH_SHORT).show();
+        }
     }
     
     // Disable keyguard (lock screen)
@@ -1976,6 +1968,7 @@ public class MainActivity extends Activity implements ConnectionProvider.Connect
     
     public void onNetworkAvailable() {
         Log.d(TAG, "Network available - triggering reconnection");
+        // A running provider is woken by ReconnectController; only a stopped one needs restarting
         if (connectionProvider != null && !connectionProvider.isRunning()) {
             retryConnection();
         }
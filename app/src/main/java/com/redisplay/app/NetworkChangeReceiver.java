@@ -6,6 +6,7 @@ import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.util.Log;
+import com.redisplay.app.network.ReconnectController;
 
 public class NetworkChangeReceiver extends BroadcastReceiver {
     private static final String TAG = "NetworkChangeReceiver";
@@ -23,6 +24,8 @@ public class NetworkChangeReceiver extends BroadcastReceiver {
             boolean isConnected = activeNetwork != null && activeNetwork.isConnectedOrConnecting();
 
             Log.d(TAG, "Network connectivity changed: " + isConnected);
+            // Wakes providers waiting to reconnect, or holds them until the network is back
+            ReconnectController.getInstance().onConnectivityChanged(isConnected);
 
             if (isConnected) {
                 // Determine if it's WiFi or Mobile
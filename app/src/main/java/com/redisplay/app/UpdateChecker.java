@@ -8,11 +8,10 @@ import android.net.Uri;
 import android.os.Environment;
 import android.util.Log;
 
+import com.redisplay.app.network.HttpClient;
+
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
 
 public class UpdateChecker {
     private static final String TAG = "UpdateChecker";
@@ -26,31 +25,19 @@ public class UpdateChecker {
     }
     
     public static void checkForUpdate(Activity activity, UpdateListener listener) {
-        new Thread(new Runnable() {
+        final HttpClient client = HttpClient.getInstance(activity);
+        boolean queued = client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
                     int currentVersionCode = getCurrentVersionCode(activity);
                     
-                    URL url = new URL(UPDATE_CHECK_URL);
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setRequestMethod("GET");
-                    connection.setConnectTimeout(5000);
-                    connection.setReadTimeout(5000);
-                    
-                    int responseCode = connection.getResponseCode();
+                    HttpClient.Response response = client.execute(
+                        HttpClient.Request.get(UPDATE_CHECK_URL).timeouts(5000, 5000));
+                    int responseCode = response.code;
                     if (responseCode == HttpURLConnection.HTTP_OK) {
-                        InputStream inputStream = connection.getInputStream();
-                        StringBuilder response = new StringBuilder();
-                        byte[] buffer = new byte[1024];
-                        int bytesRead;
-                        while ((bytesRead = inputStream.read(buffer)) != -1) {
-                            response.append(new String(buffer, 0, bytesRead));
-                        }
-                        inputStream.close();
-                        
                         // Parse JSON response: {"versionCode": 2, "versionName": "1.1", "downloadUrl": "https://..."}
-                        String json = response.toString();
+                        String json = response.string();
                         int newVersionCode = parseVersionCode(json);
                         String versionName = parseVersionName(json);
                         String downloadUrl = parseDownloadUrl(json);
@@ -71,7 +58,6 @@ public class UpdateChecker {
                             }
                         });
                     }
-                    connection.disconnect();
                 } catch (Exception e) {
                     activity.runOnUiThread(new Runnable() {
                         @Override
@@ -81,45 +67,35 @@ public class UpdateChecker {
                     });
                 }
             }
-        }).start();
+        });
+        if (!queued) {
+            activity.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onUpdateCheckFailed("Request queue full");
+                }
+            });
+        }
     }
     
     public static void downloadAndInstall(Activity activity, String downloadUrl, UpdateListener listener) {
-        new Thread(new Runnable() {
+        final HttpClient client = HttpClient.getInstance(activity);
+        boolean queued = client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
-                    URL url = new URL(downloadUrl);
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setRequestMethod("GET");
-                    connection.setConnectTimeout(10000);
-                    connection.setReadTimeout(30000);
+                    // Save to Downloads directory
+                    File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+                    if (!downloadDir.exists()) {
+                        downloadDir.mkdirs();
+                    }
                     
-                    int responseCode = connection.getResponseCode();
+                    File apkFile = new File(downloadDir, "kiosk-update.apk");
+                    
+                    // Streamed to the file; the APK is neither cached nor held in memory
+                    int responseCode = client.download(
+                        HttpClient.Request.get(downloadUrl).timeouts(10000, 30000), apkFile);
                     if (responseCode == HttpURLConnection.HTTP_OK) {
-                        // Save to Downloads directory
-                        File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-                        if (!downloadDir.exists()) {
-                            downloadDir.mkdirs();
-                        }
-                        
-                        File apkFile = new File(downloadDir, "kiosk-update.apk");
-                        
-                        InputStream inputStream = connection.getInputStream();
-                        FileOutputStream outputStream = new FileOutputStream(apkFile);
-                        
-                        byte[] buffer = new byte[4096];
-                        int bytesRead;
-                        long totalBytes = 0;
-                        while ((bytesRead = inputStream.read(buffer)) != -1) {
-                            outputStream.write(buffer, 0, bytesRead);
-                            totalBytes += bytesRead;
-                        }
-                        
-                        outputStream.close();
-                        inputStream.close();
-                        connection.disconnect();
-                        
                         activity.runOnUiThread(new Runnable() {
                             @Override
                             public void run() {
@@ -144,7 +120,15 @@ public class UpdateChecker {
                     });
                 }
             }
-        }).start();
+        });
+        if (!queued) {
+            activity.runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onUpdateCheckFailed("Download error: request queue full");
+                }
+            });
+        }
     }
     
     private static void installApk(Activity activity, File apkFile) {
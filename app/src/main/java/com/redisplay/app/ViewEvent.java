@@ -0,0 +1,175 @@
+package com.redisplay.app;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A server event decoded off the UI thread: parsed, validated and restructured into
+ * what ContentManager needs to render it.
+ *
+ * The decode step does all the parsing and validation that needs no views, so the UI
+ * thread only picks a module and displays. Fields are final and the JSON objects are
+ * not modified after decoding.
+ */
+public final class ViewEvent {
+    // Kinds of event, from the event formats the server and older servers send
+    public static final int KIND_VIEW = 0; // initial_view / view_change
+    public static final int KIND_VIEW_UPDATE = 1; // Merge patch for the view on screen
+    public static final int KIND_PLAYLIST = 2; // playback + playlist
+    public static final int KIND_CONTENT = 3; // Direct content item, or activeContent[0]
+    public static final int KIND_ERROR = 4; // Could not be decoded; message says why
+
+    public final int kind;
+    public final String viewId; // May be null
+    public final String viewType; // Module type; may be null for errors and updates
+    public final JSONObject contentItem; // {"type", "view", ...} as modules expect; null for updates and errors
+    public final JSONObject patch; // KIND_VIEW_UPDATE only
+    public final int playlistIndex; // KIND_PLAYLIST only
+    public final int playlistSize; // KIND_PLAYLIST only
+    public final String errorMessage; // KIND_ERROR only
+    public final long decodeNanos; // Time spent in decode, for stats
+
+    private ViewEvent(int kind, String viewId, String viewType, JSONObject contentItem, JSONObject patch,
+                      int playlistIndex, int playlistSize, String errorMessage, long decodeNanos) {
+        this.kind = kind;
+        this.viewId = viewId;
+        this.viewType = viewType;
+        this.contentItem = contentItem;
+        this.patch = patch;
+        this.playlistIndex = playlistIndex;
+        this.playlistSize = playlistSize;
+        this.errorMessage = errorMessage;
+        this.decodeNanos = decodeNanos;
+    }
+
+    /**
+     * Decode one event message. Returns null for events that need no UI work (plain
+     * playback updates, unknown formats, empty playlists).
+     */
+    public static ViewEvent decode(String jsonData) {
+        long start = System.nanoTime();
+        try {
+            JSONObject data = new JSONObject(jsonData);
+
+            String eventType = data.optString("type", "");
+            if ("initial_view".equals(eventType) || "view_change".equals(eventType)) {
+                return decodeView(data, start);
+            } else if ("view_update".equals(eventType)) {
+                String viewId = data.optString("id", null);
+                JSONObject patch = data.optJSONObject("patch");
+                if (viewId == null || patch == null) {
+                    return null;
+                }
+                return new ViewEvent(KIND_VIEW_UPDATE, viewId, null, null, patch, -1, 0, null, System.nanoTime() - start);
+            } else if (data.has("playback") && data.has("playlist")) {
+                return decodePlaylist(data, start);
+            } else if (data.has("type")) {
+                return decodeDirectContent(data, start);
+            } else if (data.has("playback")) {
+                // Playback updates are handled by view change events
+                return null;
+            } else if (data.has("activeContent")) {
+                JSONArray activeContent = data.getJSONArray("activeContent");
+                if (activeContent.length() == 0) {
+                    return null;
+                }
+                JSONObject contentItem = activeContent.getJSONObject(0);
+                return new ViewEvent(KIND_CONTENT, null, contentItem.optString("type", null), contentItem,
+                    null, -1, 0, null, System.nanoTime() - start);
+            }
+            // Unknown event format - ignore
+            return null;
+        } catch (org.json.JSONException e) {
+            android.util.Log.e("ViewEvent", "JSON parse error: " + e.getMessage());
+            return error("JSON parse error: " + e.getMessage(), start);
+        } catch (Exception e) {
+            android.util.Log.e("ViewEvent", "Event error: " + e.getMessage(), e);
+            return error("Event error: " + e.getMessage(), start);
+        }
+    }
+
+    /**
+     * This view event with a view_update merge patch applied to a copy of its view, or
+     * null if this is not a view event or the patched view has no type.
+     */
+    public ViewEvent withPatch(JSONObject patch) throws org.json.JSONException {
+        if (kind != KIND_VIEW) {
+            return null;
+        }
+        long start = System.nanoTime();
+        JSONObject view = com.redisplay.app.utils.JsonMergePatch.apply(
+            new JSONObject(contentItem.getJSONObject("view").toString()), patch);
+        JSONObject metadata = view.optJSONObject("metadata");
+        String patchedType = metadata != null ? metadata.optString("type", null) : null;
+        if (patchedType == null) {
+            return null;
+        }
+        JSONObject patchedItem = new JSONObject();
+        patchedItem.put("type", patchedType);
+        patchedItem.put("view", view);
+        return new ViewEvent(KIND_VIEW, viewId, patchedType, patchedItem, null, -1, 0, null,
+            decodeNanos + System.nanoTime() - start);
+    }
+
+    private static ViewEvent decodeView(JSONObject data, long start) throws org.json.JSONException {
+        if (!data.has("view")) {
+            return error("View event missing 'view' field", start);
+        }
+        JSONObject view = data.getJSONObject("view");
+        if (!view.has("metadata")) {
+            return error("View missing 'metadata' field", start);
+        }
+        JSONObject metadata = view.getJSONObject("metadata");
+        if (!metadata.has("type")) {
+            return error("Metadata missing 'type' field", start);
+        }
+
+        String viewType = metadata.getString("type");
+        // Content item structure that modules understand
+        JSONObject contentItem = new JSONObject();
+        contentItem.put("type", viewType);
+        contentItem.put("view", view);
+        return new ViewEvent(KIND_VIEW, view.optString("id", null), viewType, contentItem,
+            null, -1, 0, null, System.nanoTime() - start);
+    }
+
+    private static ViewEvent decodePlaylist(JSONObject data, long start) throws org.json.JSONException {
+        JSONObject playback = data.optJSONObject("playback");
+        if (playback == null) {
+            return null;
+        }
+        int currentIndex = playback.optInt("currentIndex", -1);
+        int totalItems = playback.optInt("totalItems", 0);
+
+        JSONObject contentItem = null;
+        JSONArray playlist = data.optJSONArray("playlist");
+        if (playlist != null && currentIndex >= 0 && currentIndex < playlist.length()) {
+            contentItem = playlist.getJSONObject(currentIndex);
+        }
+        if (contentItem == null && totalItems <= 0) {
+            return null;
+        }
+        return new ViewEvent(KIND_PLAYLIST,
+            contentItem != null ? contentItem.optString("id", null) : null,
+            contentItem != null ? contentItem.optString("type", null) : null,
+            contentItem, null, currentIndex, totalItems, null, System.nanoTime() - start);
+    }
+
+    private static ViewEvent decodeDirectContent(JSONObject contentItem, long start) {
+        String viewType = contentItem.optString("type", null);
+        String viewId = null;
+        JSONObject view = contentItem.optJSONObject("view");
+        if (view != null) {
+            viewId = view.optString("id", null);
+            JSONObject metadata = view.optJSONObject("metadata");
+            if (viewType == null && metadata != null) {
+                viewType = metadata.optString("type", null);
+            }
+        }
+        return new ViewEvent(KIND_CONTENT, viewId, viewType, contentItem, null, -1, 0, null, System.nanoTime() - start);
+    }
+
+    private static ViewEvent error(String message, long start) {
+        return new ViewEvent(KIND_ERROR, null, null, null, null, -1, 0, message, System.nanoTime() - start);
+    }
+}
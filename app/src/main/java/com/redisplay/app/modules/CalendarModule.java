@@ -15,14 +15,11 @@ import android.widget.FrameLayout;
 
 import com.redisplay.app.ContentModule;
 import com.redisplay.app.MainActivity;
+import com.redisplay.app.network.HttpClient;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -133,23 +130,12 @@ public class CalendarModule implements ContentModule {
             @Override
             protected String doInBackground(Void... voids) {
                 try {
-                    URL url = new URL(activity.getServerUrl() + "/api/calendars/view/" + viewId);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("GET");
-                    conn.setConnectTimeout(10000);
-                    conn.setReadTimeout(10000);
-
-                    if (conn.getResponseCode() != 200) {
+                    HttpClient.Response response = HttpClient.getInstance(activity).execute(
+                        HttpClient.Request.get(activity.getServerUrl() + "/api/calendars/view/" + viewId));
+                    if (response.code != 200) {
                         return null;
                     }
-
-                    BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), "utf-8"));
-                    StringBuilder response = new StringBuilder();
-                    String responseLine;
-                    while ((responseLine = br.readLine()) != null) {
-                        response.append(responseLine.trim());
-                    }
-                    return response.toString();
+                    return response.string();
                 } catch (Exception e) {
                     return null;
                 }
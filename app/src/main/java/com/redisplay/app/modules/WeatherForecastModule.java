@@ -13,15 +13,13 @@ import android.widget.TextView;
 
 import com.redisplay.app.ContentModule;
 import com.redisplay.app.MainActivity;
+import com.redisplay.app.network.HttpClient;
 import com.redisplay.app.utils.GradientHelper;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
 
 public class WeatherForecastModule implements ContentModule {
@@ -174,7 +172,8 @@ public class WeatherForecastModule implements ContentModule {
     }
 
     private void fetchWeatherData(final MainActivity activity, final String locationName, final double lat, final double lon) {
-        new Thread(new Runnable() {
+        final HttpClient client = HttpClient.getInstance(activity);
+        boolean queued = client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -184,23 +183,10 @@ public class WeatherForecastModule implements ContentModule {
 
                     Log.d(TAG, "Fetching forecast from: " + weatherUrl);
 
-                    URL url = new URL(weatherUrl);
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setConnectTimeout(10000);
-                    connection.setReadTimeout(10000);
-
-                    int responseCode = connection.getResponseCode();
+                    HttpClient.Response response = client.execute(HttpClient.Request.get(weatherUrl));
+                    int responseCode = response.code;
                     if (responseCode == HttpURLConnection.HTTP_OK) {
-                        BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(connection.getInputStream(), "UTF-8"));
-                        StringBuilder response = new StringBuilder();
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            response.append(line);
-                        }
-                        reader.close();
-
-                        final JSONObject weatherData = new JSONObject(response.toString());
+                        final JSONObject weatherData = new JSONObject(response.string());
                         activity.runOnUiThread(new Runnable() {
                             @Override
                             public void run() {
@@ -216,7 +202,6 @@ public class WeatherForecastModule implements ContentModule {
                             }
                         });
                     }
-                    connection.disconnect();
                 } catch (Exception e) {
                     Log.e(TAG, "Error fetching forecast: " + e.getMessage());
                     final String errorMsg = e.getMessage();
@@ -228,7 +213,10 @@ public class WeatherForecastModule implements ContentModule {
                     });
                 }
             }
-        }).start();
+        });
+        if (!queued) {
+            showError("Too many requests pending");
+        }
     }
 
     private void showError(String message) {
@@ -16,17 +16,15 @@ import android.widget.TextView;
 
 import com.redisplay.app.ContentModule;
 import com.redisplay.app.MainActivity;
+import com.redisplay.app.network.HttpClient;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.net.UnknownHostException;
 
@@ -359,7 +357,8 @@ public class WeatherModule implements ContentModule {
     }
 
     private void fetchWeatherData(MainActivity activity, String locationName, double lat, double lon, int hoursCount) {
-        new Thread(new Runnable() {
+        final HttpClient client = HttpClient.getInstance(activity);
+        boolean queued = client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -370,23 +369,10 @@ public class WeatherModule implements ContentModule {
                     
                     Log.d(TAG, "Fetching weather from: " + weatherUrl);
                     
-                    URL url = new URL(weatherUrl);
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setConnectTimeout(10000);
-                    connection.setReadTimeout(10000);
-
-                    int responseCode = connection.getResponseCode();
+                    HttpClient.Response response = client.execute(HttpClient.Request.get(weatherUrl));
+                    int responseCode = response.code;
                     if (responseCode == HttpURLConnection.HTTP_OK) {
-                        BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(connection.getInputStream(), "UTF-8"));
-                        StringBuilder response = new StringBuilder();
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            response.append(line);
-                        }
-                        reader.close();
-
-                        JSONObject weatherData = new JSONObject(response.toString());
+                        JSONObject weatherData = new JSONObject(response.string());
                         
                         activity.runOnUiThread(new Runnable() {
                             @Override
@@ -404,7 +390,6 @@ public class WeatherModule implements ContentModule {
                             }
                         });
                     }
-                    connection.disconnect();
                 } catch (MalformedURLException e) {
                     Log.e(TAG, "Malformed URL error: " + e.getMessage(), e);
                     activity.runOnUiThread(new Runnable() {
@@ -447,7 +432,10 @@ public class WeatherModule implements ContentModule {
                     });
                 }
             }
-        }).start();
+        });
+        if (!queued) {
+            showInViewError(activity, "Too many requests");
+        }
     }
 
     private void showInViewError(MainActivity activity, String message) {
@@ -10,6 +10,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 import com.redisplay.app.ContentModule;
 import com.redisplay.app.MainActivity;
+import com.redisplay.app.network.HttpClient;
 import org.json.JSONObject;
 
 public class WebcamModule implements ContentModule {
@@ -252,30 +253,18 @@ public class WebcamModule implements ContentModule {
         }
         
         // Fetch timestamp from webcam metadata (legacy fallback)
-        new Thread(new Runnable() {
+        final HttpClient client = HttpClient.getInstance(activity);
+        boolean queued = client.submit(new Runnable() {
             @Override
             public void run() {
                 try {
                     // Fetch metadata to get timestamp
                     String metaUrl = activity.getServerUrl() + "/api/webcams/" + webcamId + "/meta";
                     Log.d(TAG, "Fetching metadata from: " + metaUrl);
-                    java.net.URL url = new java.net.URL(metaUrl);
-                    java.net.HttpURLConnection connection = (java.net.HttpURLConnection) url.openConnection();
-                    connection.setConnectTimeout(10000);
-                    connection.setReadTimeout(10000);
-                    
-                    int responseCode = connection.getResponseCode();
+                    HttpClient.Response response = client.execute(HttpClient.Request.get(metaUrl));
+                    int responseCode = response.code;
                     if (responseCode == java.net.HttpURLConnection.HTTP_OK) {
-                        java.io.BufferedReader reader = new java.io.BufferedReader(
-                            new java.io.InputStreamReader(connection.getInputStream(), "UTF-8"));
-                        StringBuilder response = new StringBuilder();
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            response.append(line);
-                        }
-                        reader.close();
-                        
-                        JSONObject metaData = new JSONObject(response.toString());
+                        JSONObject metaData = new JSONObject(response.string());
                         // Get timestamp (either 't' or 'now' field)
                         if (metaData.has("t")) {
                             imageTimestamp = metaData.getLong("t");
@@ -316,7 +305,6 @@ public class WebcamModule implements ContentModule {
                             }
                         });
                     }
-                    connection.disconnect();
                 } catch (java.net.MalformedURLException e) {
                     Log.e(TAG, "Malformed URL error: " + e.getMessage(), e);
                     activity.runOnUiThread(new Runnable() {
@@ -406,7 +394,12 @@ public class WebcamModule implements ContentModule {
                     });
                 }
             }
-        }).start();
+        });
+        if (!queued) {
+            // Use current time as fallback
+            imageTimestamp = System.currentTimeMillis();
+            startTimestampUpdates(activity);
+        }
     }
 
     private void startTimestampUpdates(MainActivity activity) {
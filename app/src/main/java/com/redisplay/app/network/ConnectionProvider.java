@@ -1,5 +1,7 @@
 package com.redisplay.app.network;
 
+import org.json.JSONObject;
+
 public interface ConnectionProvider {
     /**
      * Start listening for data.
@@ -16,6 +18,13 @@ public interface ConnectionProvider {
      */
     boolean isRunning();
 
+    /**
+     * Send a command ({"type": "tap", "quadrant": ...}, {"type": "next"} or
+     * {"type": "previous"}) over the connection itself. Returns false if this provider
+     * cannot, in which case the caller uses the REST API.
+     */
+    boolean sendCommand(JSONObject command);
+
     /**
      * Listener for receiving data from the provider.
      */
@@ -0,0 +1,511 @@
+package com.redisplay.app.network;
+
+import android.content.Context;
+import android.util.Log;
+import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The app's HTTP client for request/response calls (API, weather, images, updates).
+ * Event streams keep their own connections in the connection providers.
+ *
+ * Requests run on the caller's thread with execute(); background work that makes them
+ * is submitted to the client's bounded pool instead of a new thread. Responses are read
+ * whole and their streams closed without disconnecting, so the platform keeps the
+ * connection alive for the next request to the same host. Responses are requested
+ * gzipped. GET responses are kept in a disk cache and revalidated with their ETag or
+ * Last-Modified; concurrent GETs of the same URL share one request. Timing is recorded
+ * per host for /api/stats.
+ */
+public final class HttpClient {
+    private static final String TAG = "HttpClient";
+    private static final int POOL_THREADS = 4;
+    private static final int POOL_QUEUE_LIMIT = 64;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+    private static final long CACHE_BYTES = 20 * 1024 * 1024;
+    private static final int DEFAULT_TIMEOUT = 10000; // ms, connect and read
+
+    private static HttpClient instance; // guarded by HttpClient.class
+
+    private final HttpDiskCache cache; // null if there is no cache directory
+    private final ThreadPoolExecutor pool;
+    private final Map<String, Call> inFlight = new HashMap<>(); // GETs by URL; guarded by itself
+    private final Map<String, HostStats> hosts = new LinkedHashMap<>(); // guarded by itself
+
+    /**
+     * The shared client. The first call decides the cache directory, so pass any
+     * context of the app.
+     */
+    public static synchronized HttpClient getInstance(Context context) {
+        if (instance == null) {
+            File cacheDir = null;
+            if (context != null && context.getApplicationContext() != null) {
+                cacheDir = new File(context.getApplicationContext().getCacheDir(), "http");
+            } else if (context != null) {
+                cacheDir = new File(context.getCacheDir(), "http");
+            }
+            instance = new HttpClient(cacheDir);
+        }
+        return instance;
+    }
+
+    HttpClient(File cacheDir) {
+        this.cache = cacheDir != null ? new HttpDiskCache(cacheDir, CACHE_BYTES) : null;
+        this.pool = new ThreadPoolExecutor(POOL_THREADS, POOL_THREADS,
+            IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(POOL_QUEUE_LIMIT), new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "http-client-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * A request; GET unless a body is given.
+     */
+    public static final class Request {
+        final String url;
+        final String method;
+        final byte[] body;
+        final String contentType;
+        int connectTimeout = DEFAULT_TIMEOUT;
+        int readTimeout = DEFAULT_TIMEOUT;
+
+        private Request(String url, String method, byte[] body, String contentType) {
+            this.url = url;
+            this.method = method;
+            this.body = body;
+            this.contentType = contentType;
+        }
+
+        public static Request get(String url) {
+            return new Request(url, "GET", null, null);
+        }
+
+        /**
+         * A POST; body may be null for an empty one.
+         */
+        public static Request post(String url, String contentType, byte[] body) {
+            return new Request(url, "POST", body, contentType);
+        }
+
+        public Request timeouts(int connectMs, int readMs) {
+            this.connectTimeout = connectMs;
+            this.readTimeout = readMs;
+            return this;
+        }
+    }
+
+    /**
+     * A complete response. The body is shared between coalesced callers and must not
+     * be modified.
+     */
+    public static final class Response {
+        public final int code;
+        public final byte[] body; // Decompressed; empty if there was none
+        public final String contentType;
+        public final boolean fromCache; // Served from the cache, fresh or revalidated
+
+        Response(int code, byte[] body, String contentType, boolean fromCache) {
+            this.code = code;
+            this.body = body;
+            this.contentType = contentType;
+            this.fromCache = fromCache;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+
+        public String string() {
+            try {
+                return new String(body, "UTF-8");
+            } catch (java.io.UnsupportedEncodingException e) {
+                return new String(body);
+            }
+        }
+    }
+
+    // A GET in progress, waited on by requests for the same URL
+    private static final class Call {
+        final CountDownLatch done = new CountDownLatch(1);
+        Response response;
+        IOException error;
+    }
+
+    /**
+     * Run work that makes requests on the client's pool. Returns false if the pool is
+     * saturated and the work was dropped.
+     */
+    public boolean submit(Runnable work) {
+        try {
+            pool.execute(work);
+            return true;
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Request pool full, dropping background request");
+            return false;
+        }
+    }
+
+    /**
+     * Perform a request on the calling thread. Any status is returned as a Response;
+     * network failures throw the exception HttpURLConnection threw.
+     */
+    public Response execute(Request request) throws IOException {
+        if (!"GET".equals(request.method)) {
+            return fetch(request, null);
+        }
+        Call call;
+        boolean leader = false;
+        synchronized (inFlight) {
+            call = inFlight.get(request.url);
+            if (call == null) {
+                call = new Call();
+                inFlight.put(request.url, call);
+                leader = true;
+            }
+        }
+        if (!leader) {
+            count(request.url, COUNT_COALESCED);
+            try {
+                // Bounded by this caller's own timeouts, not those of the request it joined.
+                // A zero timeout means none, as for HttpURLConnection.
+                long limit = (long) request.connectTimeout + request.readTimeout;
+                if (request.connectTimeout == 0 || request.readTimeout == 0) {
+                    call.done.await();
+                } else if (!call.done.await(limit, TimeUnit.MILLISECONDS)) {
+                    throw new java.net.SocketTimeoutException("Timed out after " + limit
+                        + "ms waiting for a shared request to " + request.url);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new java.io.InterruptedIOException("Interrupted waiting for " + request.url);
+            }
+            if (call.error != null) {
+                throw call.error;
+            }
+            return call.response;
+        }
+        try {
+            call.response = get(request);
+            return call.response;
+        } catch (IOException e) {
+            call.error = e;
+            throw e;
+        } catch (Throwable t) {
+            // Anything else (a non-http URL, a connection in a bad state) must fail the
+            // waiters too, rather than leave them with neither a response nor an error
+            call.error = new IOException("Request to " + request.url + " failed: " + t, t);
+            throw t;
+        } finally {
+            synchronized (inFlight) {
+                inFlight.remove(request.url);
+            }
+            call.done.countDown();
+        }
+    }
+
+    /**
+     * Download a GET response to a file, without caching or holding it in memory.
+     * Returns the status; the file is only written for 200.
+     */
+    public int download(Request request, File file) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = open(request);
+        try {
+            int code = connection.getResponseCode();
+            long bytes = 0;
+            InputStream in = responseStream(connection, code);
+            try {
+                if (code == HttpURLConnection.HTTP_OK && in != null) {
+                    OutputStream out = new FileOutputStream(file);
+                    try {
+                        byte[] buffer = new byte[8192];
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, read);
+                            bytes += read;
+                        }
+                    } finally {
+                        out.close();
+                    }
+                } else {
+                    bytes = readAll(in).length;
+                }
+            } finally {
+                if (in != null) {
+                    in.close();
+                }
+            }
+            record(request.url, start, bytes, false, false);
+            return code;
+        } catch (IOException e) {
+            record(request.url, start, 0, true, false);
+            connection.disconnect(); // Broken connection; do not reuse it
+            throw e;
+        }
+    }
+
+    // A GET through the cache
+    private Response get(Request request) throws IOException {
+        HttpDiskCache.Entry cached = cache != null ? cache.get(request.url) : null;
+        if (cached != null && cached.isFresh()) {
+            count(request.url, COUNT_CACHE_HIT);
+            return new Response(cached.code, cached.body, cached.contentType, true);
+        }
+        HttpDiskCache.Entry validated = cached != null && cached.hasValidator() ? cached : null;
+        return fetch(request, validated);
+    }
+
+    private Response fetch(Request request, HttpDiskCache.Entry cached) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = open(request);
+        try {
+            if (cached != null) {
+                if (cached.etag != null) {
+                    connection.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+                }
+            }
+            if (request.body != null) {
+                connection.setDoOutput(true);
+                if (request.contentType != null) {
+                    connection.setRequestProperty("Content-Type", request.contentType);
+                }
+                OutputStream out = connection.getOutputStream();
+                try {
+                    out.write(request.body);
+                } finally {
+                    out.close();
+                }
+            }
+            int code = connection.getResponseCode();
+            InputStream in = responseStream(connection, code);
+            byte[] body;
+            try {
+                body = readAll(in);
+            } finally {
+                if (in != null) {
+                    in.close();
+                }
+            }
+
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                long freshUntil = freshUntil(connection.getHeaderField("Cache-Control"));
+                if (freshUntil != cached.freshUntil) {
+                    cache.refresh(request.url, cached, freshUntil);
+                }
+                record(request.url, start, body.length, false, true);
+                return new Response(cached.code, cached.body, cached.contentType, true);
+            }
+            Response response = new Response(code, body, connection.getContentType(), false);
+            if (cache != null && "GET".equals(request.method)) {
+                store(request.url, connection, response);
+            }
+            record(request.url, start, body.length, false, false);
+            return response;
+        } catch (IOException e) {
+            record(request.url, start, 0, true, false);
+            connection.disconnect(); // Broken connection; do not reuse it
+            throw e;
+        }
+    }
+
+    private void store(String url, HttpURLConnection connection, Response response) {
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        long freshUntil = freshUntil(cacheControl);
+        boolean noStore = cacheControl != null && cacheControl.toLowerCase(java.util.Locale.US).contains("no-store");
+        if (response.code != HttpURLConnection.HTTP_OK || noStore
+            || (etag == null && lastModified == null && freshUntil == 0)) {
+            // Nothing the cache could use next time; forget any stale copy
+            cache.remove(url);
+            return;
+        }
+        cache.put(url, new HttpDiskCache.Entry(response.code, response.body, response.contentType,
+            etag, lastModified, freshUntil));
+    }
+
+    // Until when a response may be used without asking the server, from max-age; 0 if
+    // it must be revalidated every time
+    private static long freshUntil(String cacheControl) {
+        if (cacheControl == null) {
+            return 0;
+        }
+        String value = cacheControl.toLowerCase(java.util.Locale.US);
+        if (value.contains("no-cache") || value.contains("no-store")) {
+            return 0;
+        }
+        int index = value.indexOf("max-age=");
+        if (index < 0) {
+            return 0;
+        }
+        int end = index + "max-age=".length();
+        int digitsEnd = end;
+        while (digitsEnd < value.length() && Character.isDigit(value.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        try {
+            long seconds = Long.parseLong(value.substring(end, digitsEnd));
+            return seconds > 0 ? System.currentTimeMillis() + seconds * 1000 : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static HttpURLConnection open(Request request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(request.url).openConnection();
+        connection.setRequestMethod(request.method);
+        connection.setConnectTimeout(request.connectTimeout);
+        connection.setReadTimeout(request.readTimeout);
+        connection.setUseCaches(false); // Caching is ours; keep the platform cache out of it
+        // Set explicitly, so decompression is ours too and works the same everywhere
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        return connection;
+    }
+
+    // The body stream for any status, decompressed; null if there is none
+    private static InputStream responseStream(HttpURLConnection connection, int code) throws IOException {
+        InputStream in = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null && "gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            try {
+                in = new GZIPInputStream(in);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+        return in;
+    }
+
+    // Read to the end: a connection is only reused once its body has been consumed
+    private static byte[] readAll(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    // Per-host counters; fields guarded by hosts
+    private static final class HostStats {
+        long requests;
+        long failures;
+        long cacheHits; // Fresh, served without a request
+        long notModified; // Revalidated with a 304
+        long coalesced; // Shared another caller's request
+        long bytes;
+        long totalMs;
+        long maxMs;
+    }
+
+    private HostStats hostStats(String url) {
+        String host;
+        try {
+            URL parsed = new URL(url);
+            host = parsed.getPort() >= 0 ? parsed.getHost() + ":" + parsed.getPort() : parsed.getHost();
+        } catch (java.net.MalformedURLException e) {
+            host = "invalid";
+        }
+        synchronized (hosts) {
+            HostStats stats = hosts.get(host);
+            if (stats == null) {
+                stats = new HostStats();
+                hosts.put(host, stats);
+            }
+            return stats;
+        }
+    }
+
+    private static final int COUNT_CACHE_HIT = 0;
+    private static final int COUNT_COALESCED = 1;
+
+    private void count(String url, int counter) {
+        HostStats stats = hostStats(url);
+        synchronized (hosts) {
+            if (counter == COUNT_CACHE_HIT) {
+                stats.cacheHits++;
+            } else {
+                stats.coalesced++;
+            }
+        }
+    }
+
+    private void record(String url, long startNanos, long bytes, boolean failed, boolean notModified) {
+        long ms = (System.nanoTime() - startNanos) / 1000000;
+        HostStats stats = hostStats(url);
+        synchronized (hosts) {
+            stats.requests++;
+            stats.bytes += bytes;
+            stats.totalMs += ms;
+            stats.maxMs = Math.max(stats.maxMs, ms);
+            if (failed) {
+                stats.failures++;
+            }
+            if (notModified) {
+                stats.notModified++;
+            }
+        }
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            stats.put("poolActive", pool.getActiveCount());
+            stats.put("poolQueued", pool.getQueue().size());
+            stats.put("cacheBytes", cache != null ? cache.size() : 0);
+            JSONObject byHost = new JSONObject();
+            synchronized (hosts) {
+                for (Map.Entry<String, HostStats> entry : hosts.entrySet()) {
+                    HostStats host = entry.getValue();
+                    JSONObject json = new JSONObject();
+                    json.put("requests", host.requests);
+                    json.put("failures", host.failures);
+                    json.put("cacheHits", host.cacheHits);
+                    json.put("notModified", host.notModified);
+                    json.put("coalesced", host.coalesced);
+                    json.put("bytes", host.bytes);
+                    json.put("avgMs", host.requests > 0 ? host.totalMs / host.requests : 0);
+                    json.put("maxMs", host.maxMs);
+                    byHost.put(entry.getKey(), json);
+                }
+            }
+            stats.put("hosts", byHost);
+        } catch (Exception e) {
+            Log.e(TAG, "Error building HTTP client stats: " + e.getMessage());
+        }
+        return stats;
+    }
+}
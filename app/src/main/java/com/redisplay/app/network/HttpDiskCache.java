@@ -0,0 +1,250 @@
+package com.redisplay.app.network;
+
+import android.util.Log;
+import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+/**
+ * Disk cache of GET responses for HttpClient, following the validators and Cache-Control
+ * of each response.
+ *
+ * An entry is two files named after a hash of the URL: the body and its metadata (ETag,
+ * Last-Modified, content type, and until when it is fresh). Responses with no-store, or
+ * with neither validators nor max-age, are not kept. The least recently used entries are
+ * deleted once the cache grows past maxBytes. Methods are synchronized; bodies are small
+ * enough (MAX_ENTRY_BYTES) to read and write whole.
+ */
+final class HttpDiskCache {
+    private static final String TAG = "HttpDiskCache";
+    static final int MAX_ENTRY_BYTES = 4 * 1024 * 1024;
+
+    private final File directory;
+    private final long maxBytes;
+    private long size = -1; // Bytes on disk, computed on first use
+
+    /**
+     * A stored response.
+     */
+    static final class Entry {
+        final int code;
+        final byte[] body;
+        final String contentType;
+        final String etag;
+        final String lastModified;
+        final long freshUntil; // Wall clock; 0 if it must be revalidated
+
+        Entry(int code, byte[] body, String contentType, String etag, String lastModified, long freshUntil) {
+            this.code = code;
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.freshUntil = freshUntil;
+        }
+
+        boolean isFresh() {
+            return freshUntil > System.currentTimeMillis();
+        }
+
+        boolean hasValidator() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    HttpDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The entry for url, or null if there is none or it cannot be read.
+     */
+    synchronized Entry get(String url) {
+        String key = key(url);
+        File meta = new File(directory, key + ".meta");
+        File body = new File(directory, key + ".body");
+        if (!meta.exists() || !body.exists()) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(new String(readFile(meta), "UTF-8"));
+            if (!url.equals(json.optString("url"))) {
+                return null; // Hash collision
+            }
+            Entry entry = new Entry(json.optInt("code", 200), readFile(body),
+                json.optString("contentType", null), json.optString("etag", null),
+                json.optString("lastModified", null), json.optLong("freshUntil", 0));
+            long now = System.currentTimeMillis();
+            meta.setLastModified(now); // Recency for eviction
+            return entry;
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping unreadable cache entry for " + url + ": " + e.getMessage());
+            remove(url);
+            return null;
+        }
+    }
+
+    /**
+     * Store or replace the entry for url.
+     */
+    synchronized void put(String url, Entry entry) {
+        if (entry.body.length > MAX_ENTRY_BYTES) {
+            // Too big to keep; the copy on disk is out of date now
+            remove(url);
+            return;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+        ensureSize();
+        remove(url);
+        String key = key(url);
+        try {
+            // Body first and metadata last, each through a rename, so a crash leaves no
+            // metadata pointing at a partial body
+            writeFile(new File(directory, key + ".body"), entry.body);
+            byte[] metaBytes = metadata(url, entry);
+            writeFile(new File(directory, key + ".meta"), metaBytes);
+            size += entry.body.length + metaBytes.length;
+        } catch (Exception e) {
+            Log.w(TAG, "Could not cache " + url + ": " + e.getMessage());
+            remove(url);
+        }
+        trim();
+    }
+
+    /**
+     * New freshness for an entry that was revalidated (304). Only the metadata is
+     * rewritten; the body on disk is still the right one.
+     */
+    synchronized void refresh(String url, Entry entry, long freshUntil) {
+        File meta = new File(directory, key(url) + ".meta");
+        if (!meta.exists()) {
+            return; // Evicted since it was read
+        }
+        ensureSize();
+        long oldLength = meta.length();
+        try {
+            byte[] metaBytes = metadata(url, new Entry(entry.code, entry.body, entry.contentType,
+                entry.etag, entry.lastModified, freshUntil));
+            writeFile(meta, metaBytes);
+            size += metaBytes.length - oldLength;
+        } catch (Exception e) {
+            Log.w(TAG, "Could not refresh cache entry for " + url + ": " + e.getMessage());
+            remove(url);
+        }
+    }
+
+    synchronized void remove(String url) {
+        String key = key(url);
+        delete(new File(directory, key + ".meta"));
+        delete(new File(directory, key + ".body"));
+    }
+
+    synchronized long size() {
+        ensureSize();
+        return size;
+    }
+
+    private void delete(File file) {
+        long length = file.length();
+        if (file.exists() && file.delete() && size >= 0) {
+            size -= length;
+        }
+    }
+
+    private void ensureSize() {
+        if (size >= 0) {
+            return;
+        }
+        size = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+    }
+
+    // Delete least recently used entries until the cache fits
+    private void trim() {
+        while (size > maxBytes) {
+            File[] metas = directory.listFiles();
+            File oldest = null;
+            if (metas != null) {
+                for (File file : metas) {
+                    if (file.getName().endsWith(".meta")
+                        && (oldest == null || file.lastModified() < oldest.lastModified())) {
+                        oldest = file;
+                    }
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            String key = oldest.getName().substring(0, oldest.getName().length() - ".meta".length());
+            delete(oldest);
+            delete(new File(directory, key + ".body"));
+        }
+    }
+
+    private static byte[] metadata(String url, Entry entry) throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("url", url);
+        json.put("code", entry.code);
+        if (entry.contentType != null) json.put("contentType", entry.contentType);
+        if (entry.etag != null) json.put("etag", entry.etag);
+        if (entry.lastModified != null) json.put("lastModified", entry.lastModified);
+        json.put("freshUntil", entry.freshUntil);
+        return json.toString().getBytes("UTF-8");
+    }
+
+    private static String key(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not rename " + temp);
+        }
+    }
+}
@@ -5,22 +5,16 @@ import com.redisplay.app.server.InternalHttpServer;
 import com.redisplay.app.server.InternalViewManager;
 import com.redisplay.app.server.InternalChannelConfig;
 import org.json.JSONObject;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 
 /**
  * Connection provider for the internal HTTP server.
  * 
- * Note: This uses polling instead of SSE because NanoHTTPD (the embedded HTTP server)
- * doesn't support long-lived connections well. For remote servers, SSE is used via
- * SseConnectionProvider. Polling is acceptable for local connections as it's fast
- * and doesn't add network overhead.
+ * The internal server runs in the same process, so instead of going through HTTP this
+ * provider subscribes to InternalViewManager and receives view changes as they happen.
+ * For remote servers, SSE is used via SseConnectionProvider.
  */
-public class InternalServerConnectionProvider implements ConnectionProvider {
+public class InternalServerConnectionProvider implements ConnectionProvider, InternalViewManager.ViewChangeListener {
     private static final String TAG = "InternalServerConnectionProvider";
-    private static final int POLL_INTERVAL = 1000; // Poll every second
     
     private final String channel;
     private final ConnectionListener listener;
@@ -30,9 +24,8 @@ public class InternalServerConnectionProvider implements ConnectionProvider {
     private android.content.Context context;
     
     private volatile boolean isRunning = false;
-    private Thread pollThread;
-    private String lastViewId = null;
     private String serverAddress;
+    private boolean changeDelivered; // A view_change was sent since connect; guarded by this
     
     public InternalServerConnectionProvider(android.content.Context context,
                                           InternalViewManager viewManager, 
@@ -61,92 +54,87 @@ public class InternalServerConnectionProvider implements ConnectionProvider {
             disconnect();
         }
         
+        // Server should already be initialized (singleton)
+        if (server == null) {
+            Log.e(TAG, "Server instance is null! This should not happen.");
+            if (listener != null) {
+                listener.onError("Internal server not initialized");
+            }
+            return;
+        }
+        
         isRunning = true;
         
-        // Server should already be provided via constructor (singleton)
-        // Just start the polling and send connection event
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    // Server should already be initialized (singleton)
-                    if (server == null) {
-                        Log.e(TAG, "Server instance is null! This should not happen.");
-                        if (listener != null) {
-                            listener.onError("Internal server not initialized");
-                        }
-                        isRunning = false;
-                        return;
-                    }
-                    
-                    serverAddress = server.getServerAddress();
-                    Log.d(TAG, "Using singleton server: " + serverAddress);
-                    
-                    // Send initial connection event
-                    if (listener != null) {
-                        listener.onConnected();
-                        
-                        // Send initial view
-                        JSONObject currentView = viewManager.getCurrentView(channel);
-                        if (currentView != null) {
-                            try {
-                                JSONObject initialMessage = new JSONObject();
-                                initialMessage.put("type", "initial_view");
-                                initialMessage.put("view", currentView);
-                                listener.onMessageReceived(initialMessage.toString());
-                                lastViewId = currentView.optString("id");
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error sending initial view: " + e.getMessage());
-                            }
-                        }
-                    }
-                    
-                    // Start polling thread to detect view changes
-                    pollThread = new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            while (isRunning) {
-                                try {
-                                    JSONObject currentView = viewManager.getCurrentView(channel);
-                                    if (currentView != null) {
-                                        String currentViewId = currentView.optString("id");
-                                        if (!currentViewId.equals(lastViewId)) {
-                                            // View changed - send event
-                                            try {
-                                                JSONObject message = new JSONObject();
-                                                message.put("type", "view_change");
-                                                message.put("view", currentView);
-                                                if (listener != null) {
-                                                    listener.onMessageReceived(message.toString());
-                                                }
-                                                lastViewId = currentViewId;
-                                            } catch (Exception e) {
-                                                Log.e(TAG, "Error sending view change: " + e.getMessage());
-                                            }
-                                        }
-                                    }
-                                    
-                                    Thread.sleep(POLL_INTERVAL);
-                                } catch (InterruptedException e) {
-                                    Log.d(TAG, "Poll thread interrupted");
-                                    break;
-                                } catch (Exception e) {
-                                    Log.e(TAG, "Error in poll thread: " + e.getMessage());
-                                }
-                            }
+        try {
+            serverAddress = server.getServerAddress();
+            Log.d(TAG, "Using singleton server: " + serverAddress);
+            
+            // The view returned is the one current when we subscribed; later changes come
+            // through onViewChanged, possibly on another thread before we get to send it
+            synchronized (this) {
+                changeDelivered = false;
+            }
+            JSONObject currentView = viewManager.addViewChangeListener(channel, this);
+            
+            // Send initial connection event
+            if (listener != null) {
+                listener.onConnected();
+                
+                // Send initial view, unless a newer one has already been delivered
+                synchronized (this) {
+                    if (currentView != null && !changeDelivered) {
+                        try {
+                            JSONObject initialMessage = new JSONObject();
+                            initialMessage.put("type", "initial_view");
+                            initialMessage.put("view", currentView);
+                            listener.onMessageReceived(initialMessage.toString());
+                        } catch (Exception e) {
+                            Log.e(TAG, "Error sending initial view: " + e.getMessage());
                         }
-                    });
-                    pollThread.start();
-                    
-                } catch (Exception e) {
-                    Log.e(TAG, "Error starting internal server: " + e.getMessage(), e);
-                    isRunning = false;
-                    if (listener != null) {
-                        listener.onError(e.getMessage());
                     }
                 }
             }
-        }).start();
+        } catch (Exception e) {
+            Log.e(TAG, "Error connecting to internal server: " + e.getMessage(), e);
+            disconnect();
+            if (listener != null) {
+                listener.onError(e.getMessage());
+            }
+        }
+    }
+    
+    @Override
+    public void onViewChanged(String changedChannel, JSONObject view) {
+        if (!isRunning || listener == null) {
+            return;
+        }
+        try {
+            JSONObject message = new JSONObject();
+            message.put("type", "view_change");
+            message.put("view", view);
+            synchronized (this) {
+                changeDelivered = true;
+                listener.onMessageReceived(message.toString());
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending view change: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void onViewUpdated(String changedChannel, String viewId, JSONObject patch) {
+        if (!isRunning || listener == null) {
+            return;
+        }
+        try {
+            JSONObject message = new JSONObject();
+            message.put("type", "view_update");
+            message.put("id", viewId);
+            message.put("patch", patch);
+            listener.onMessageReceived(message.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending view update: " + e.getMessage());
+        }
     }
     
     @Override
@@ -154,8 +142,8 @@ public class InternalServerConnectionProvider implements ConnectionProvider {
         Log.d(TAG, "Stopping internal server connection");
         isRunning = false;
         
-        if (pollThread != null) {
-            pollThread.interrupt();
+        if (viewManager != null) {
+            viewManager.removeViewChangeListener(channel, this);
         }
         
         // Don't stop the HTTP server - it might be used by other components
@@ -167,6 +155,12 @@ public class InternalServerConnectionProvider implements ConnectionProvider {
         return isRunning;
     }
     
+    @Override
+    public boolean sendCommand(JSONObject command) {
+        // Taps go to the in-process server over localhost REST, which applies the channel's tap mapping
+        return false;
+    }
+    
     public InternalHttpServer getServer() {
         return server;
     }
@@ -0,0 +1,273 @@
+package com.redisplay.app.network;
+
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Decides when connection providers retry, shared by all of them so connectivity
+ * signals reach every connection.
+ *
+ * Each provider gets a Session. Delays grow exponentially from the base delay up to
+ * MAX_DELAY, with full jitter, so displays that lost the same Wi-Fi do not reconnect in
+ * lockstep. When connectivity comes back every waiting session retries within a short
+ * jittered window instead of finishing its delay; while it is known to be down,
+ * sessions wait for it. After BREAKER_THRESHOLD consecutive failures a session's
+ * circuit opens and it only probes every BREAKER_OPEN_DELAY (or on connectivity-up)
+ * until an attempt succeeds.
+ */
+public final class ReconnectController {
+    private static final String TAG = "ReconnectController";
+    static final long DEFAULT_BASE_DELAY = 1000;
+    private static final long MIN_DELAY = 250;
+    private static final long MAX_DELAY = 60000;
+    private static final long CONNECTIVITY_JITTER = 1000; // Spread of retries after connectivity returns
+    private static final int BREAKER_THRESHOLD = 8;
+    private static final long BREAKER_OPEN_DELAY = 5 * 60 * 1000;
+    private static final long STABLE_CONNECTION = 30000; // Shorter connections count as failed attempts
+
+    static final int STATE_CLOSED = 0; // Connected, or retrying with backoff
+    static final int STATE_OPEN = 1; // Too many failures; waiting to probe
+    static final int STATE_HALF_OPEN = 2; // Probing with a single attempt
+    private static final String[] STATE_NAMES = {"closed", "open", "half_open"};
+
+    private static final ReconnectController INSTANCE = new ReconnectController();
+
+    private final Random random = new Random();
+    private final List<Session> sessions = new ArrayList<>(); // guarded by this
+    private boolean networkAvailable = true; // guarded by this; assume up until told otherwise
+    private long connectivityGeneration; // guarded by this; bumped when connectivity returns
+
+    public static ReconnectController getInstance() {
+        return INSTANCE;
+    }
+
+    ReconnectController() {
+    }
+
+    /**
+     * Backoff state for one connection; it is listed in the stats while open.
+     */
+    public Session newSession(String name) {
+        return new Session(name);
+    }
+
+    /**
+     * Connectivity changed. Coming back wakes every waiting session for a prompt retry.
+     */
+    public synchronized void onConnectivityChanged(boolean available) {
+        boolean wasAvailable = networkAvailable;
+        networkAvailable = available;
+        if (available && !wasAvailable) {
+            connectivityGeneration++;
+            Log.d(TAG, "Connectivity restored, waking " + sessions.size() + " connections");
+            notifyAll();
+        } else if (available) {
+            // Network switch (e.g. a new Wi-Fi): worth retrying right away too
+            connectivityGeneration++;
+            notifyAll();
+        }
+    }
+
+    private synchronized long jitter(long bound) {
+        return bound <= 0 ? 0 : (long) (random.nextDouble() * bound);
+    }
+
+    public synchronized JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            stats.put("networkAvailable", networkAvailable);
+            JSONArray list = new JSONArray();
+            for (Session session : sessions) {
+                list.put(session.getStats());
+            }
+            stats.put("connections", list);
+        } catch (Exception e) {
+            Log.e(TAG, "Error building reconnect stats: " + e.getMessage());
+        }
+        return stats;
+    }
+
+    /**
+     * Backoff, breaker state and latency metrics of one connection. Used by the
+     * provider's connection thread; stats may be read from any thread.
+     */
+    public final class Session {
+        private final String name;
+        private long baseDelay = DEFAULT_BASE_DELAY; // guarded by the controller
+        private int failures; // Consecutive failed attempts; guarded by the controller
+        private int state = STATE_CLOSED; // guarded by the controller
+        private long connectedAt; // When the current connection was established, 0 if none
+        private long disconnectedAt; // When the connection was lost, 0 while connected
+        private long reconnects;
+        private long breakerOpens;
+        private long lastReconnectMs;
+        private long maxReconnectMs;
+        private long totalReconnectMs;
+
+        private Session(String name) {
+            this.name = name;
+        }
+
+        /**
+         * The server asked for a different base delay (SSE retry field).
+         */
+        public void setBaseDelay(long delayMs) {
+            synchronized (ReconnectController.this) {
+                baseDelay = Math.max(MIN_DELAY, Math.min(MAX_DELAY, delayMs));
+            }
+        }
+
+        /**
+         * The provider started connecting.
+         */
+        public void open() {
+            synchronized (ReconnectController.this) {
+                if (!sessions.contains(this)) {
+                    sessions.add(this);
+                }
+            }
+        }
+
+        /**
+         * The provider stopped; the session keeps its counters if it is opened again.
+         */
+        public void close() {
+            synchronized (ReconnectController.this) {
+                sessions.remove(this);
+                connectedAt = 0;
+                disconnectedAt = 0;
+            }
+        }
+
+        /**
+         * An attempt succeeded: close the circuit. The backoff resets once the connection
+         * has stayed up for STABLE_CONNECTION, so a server that accepts and immediately
+         * drops connections is still backed off.
+         */
+        public void onConnected() {
+            synchronized (ReconnectController.this) {
+                long now = System.currentTimeMillis();
+                connectedAt = now;
+                if (disconnectedAt > 0) {
+                    long latency = now - disconnectedAt;
+                    reconnects++;
+                    lastReconnectMs = latency;
+                    totalReconnectMs += latency;
+                    maxReconnectMs = Math.max(maxReconnectMs, latency);
+                    Log.i(TAG, name + " reconnected after " + latency + "ms and " + failures + " failed attempts");
+                }
+                disconnectedAt = 0;
+                state = STATE_CLOSED;
+            }
+        }
+
+        /**
+         * An established connection dropped.
+         */
+        public void onDisconnected() {
+            synchronized (ReconnectController.this) {
+                long now = System.currentTimeMillis();
+                boolean stable = connectedAt > 0 && now - connectedAt >= STABLE_CONNECTION;
+                connectedAt = 0;
+                if (stable) {
+                    failures = 0;
+                    disconnectedAt = now;
+                } else {
+                    onFailure();
+                }
+            }
+        }
+
+        /**
+         * An attempt failed. Opens the circuit after BREAKER_THRESHOLD in a row.
+         */
+        public void onFailure() {
+            synchronized (ReconnectController.this) {
+                connectedAt = 0;
+                if (disconnectedAt == 0) {
+                    disconnectedAt = System.currentTimeMillis();
+                }
+                failures++;
+                if (state == STATE_HALF_OPEN || (state == STATE_CLOSED && failures >= BREAKER_THRESHOLD)) {
+                    if (state == STATE_CLOSED) {
+                        breakerOpens++;
+                        Log.w(TAG, name + " failed " + failures + " times, backing off to "
+                            + BREAKER_OPEN_DELAY / 1000 + "s probes");
+                    }
+                    state = STATE_OPEN;
+                }
+            }
+        }
+
+        /**
+         * Wait until the next attempt is due: the jittered backoff, cut short when
+         * connectivity returns, and extended while it is known to be down. Throws if the
+         * provider's thread is interrupted (disconnect).
+         */
+        public void awaitNextAttempt() throws InterruptedException {
+            synchronized (ReconnectController.this) {
+                long delay = nextDelay();
+                long generation = connectivityGeneration;
+                long deadline = System.currentTimeMillis() + delay;
+                Log.d(TAG, name + " retrying in " + delay + "ms (" + STATE_NAMES[state] + ", "
+                    + failures + " failures)");
+                while (true) {
+                    if (connectivityGeneration != generation) {
+                        break;
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0 && networkAvailable) {
+                        break;
+                    }
+                    // While the network is down, only connectivity-up (or the longest
+                    // backoff, in case the signal never comes) ends the wait
+                    ReconnectController.this.wait(remaining > 0 ? remaining : MAX_DELAY);
+                    if (!networkAvailable && System.currentTimeMillis() - deadline >= MAX_DELAY) {
+                        break;
+                    }
+                }
+                if (state == STATE_OPEN) {
+                    state = STATE_HALF_OPEN;
+                }
+                if (connectivityGeneration == generation) {
+                    return;
+                }
+            }
+            // Woken by connectivity: a short random pause so displays on the same
+            // network do not all hit the server in the same instant
+            Thread.sleep(jitter(CONNECTIVITY_JITTER));
+        }
+
+        // Called with the controller locked
+        private long nextDelay() {
+            if (state == STATE_OPEN) {
+                // +-20% so probing displays drift apart
+                return BREAKER_OPEN_DELAY * 4 / 5 + jitter(BREAKER_OPEN_DELAY * 2 / 5);
+            }
+            int exponent = Math.min(Math.max(failures - 1, 0), 16);
+            long ceiling = Math.min(MAX_DELAY, baseDelay << exponent);
+            return Math.max(MIN_DELAY, jitter(ceiling));
+        }
+
+        JSONObject getStats() {
+            JSONObject stats = new JSONObject();
+            try {
+                stats.put("name", name);
+                stats.put("state", STATE_NAMES[state]);
+                stats.put("failures", failures);
+                stats.put("reconnects", reconnects);
+                stats.put("breakerOpens", breakerOpens);
+                stats.put("lastReconnectMs", lastReconnectMs);
+                stats.put("avgReconnectMs", reconnects > 0 ? totalReconnectMs / reconnects : 0);
+                stats.put("maxReconnectMs", maxReconnectMs);
+            } catch (Exception e) {
+                Log.e(TAG, "Error building session stats: " + e.getMessage());
+            }
+            return stats;
+        }
+    }
+}
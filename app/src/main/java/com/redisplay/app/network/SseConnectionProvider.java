@@ -1,14 +1,14 @@
 package com.redisplay.app.network;
 
 import android.util.Log;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import org.json.JSONObject;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 
 public class SseConnectionProvider implements ConnectionProvider {
     private static final String TAG = "SseConnectionProvider";
-    private static final int RECONNECT_DELAY = 5000;
+    private static final long KEEP_ALIVE_TIMEOUT = 60000; // Reconnect if nothing arrives for this long
     
     private final String serverUrl;
     private final String channel;
@@ -17,11 +17,41 @@ public class SseConnectionProvider implements ConnectionProvider {
     private volatile boolean isRunning = false;
     private Thread sseThread;
     private HttpURLConnection currentConnection;
+    private final ReconnectController.Session reconnect;
+    private volatile String lastEventId; // Sent back as Last-Event-ID when reconnecting
+    
+    private final SseParser.Handler eventHandler = new SseParser.Handler() {
+        @Override
+        public void onEvent(String type, String data, String eventId) {
+            if (eventId != null) {
+                lastEventId = eventId;
+            }
+            if (listener == null) {
+                return;
+            }
+            if (!SseParser.DEFAULT_EVENT.equals(type)) {
+                data = withEventType(type, data);
+            }
+            listener.onMessageReceived(data);
+        }
+        
+        @Override
+        public void onRetry(long retryMs) {
+            Log.d(TAG, "Server set reconnect delay to " + retryMs + "ms");
+            reconnect.setBaseDelay(retryMs);
+        }
+        
+        @Override
+        public void onComment() {
+            // Keep-alive; the read loop already recorded the activity
+        }
+    };
 
     public SseConnectionProvider(String serverUrl, String channel, ConnectionListener listener) {
         this.serverUrl = serverUrl;
         this.channel = channel != null ? channel : "test"; // Default to "test" if not provided
         this.listener = listener;
+        this.reconnect = ReconnectController.getInstance().newSession("sse/" + this.channel);
     }
 
     @Override
@@ -40,42 +70,50 @@ public class SseConnectionProvider implements ConnectionProvider {
         }
         
         isRunning = true;
+        reconnect.open();
         sseThread = new Thread(new Runnable() {
             @Override
             public void run() {
+                // Parser and buffer belong to this thread; a replaced thread may still be winding down
+                SseParser parser = new SseParser(eventHandler);
+                byte[] readBuffer = new byte[8192];
                 while (isRunning) {
+                    boolean connected = false;
                     try {
                         String sseUrl = serverUrl + "/sse/" + channel;
                         Log.d(TAG, "Connecting to SSE: " + sseUrl + " (channel: " + channel + ")");
                         
                         URL url = new URL(sseUrl);
                         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                        synchronized (this) {
+                        synchronized (SseConnectionProvider.this) {
                             currentConnection = connection;
                         }
                         connection.setRequestMethod("GET");
                         connection.setRequestProperty("Accept", "text/event-stream");
+                        String resumeId = lastEventId;
+                        if (resumeId != null) {
+                            // Lets the server replay just the events missed while disconnected
+                            connection.setRequestProperty("Last-Event-ID", resumeId);
+                        }
                         connection.setConnectTimeout(10000);
                         connection.setReadTimeout(30000); // 30 second read timeout to prevent getting stuck
                         
                         int responseCode = connection.getResponseCode();
                         if (responseCode == HttpURLConnection.HTTP_OK) {
+                            connected = true;
+                            reconnect.onConnected();
                             if (listener != null) {
                                 listener.onConnected();
                             }
                             
-                            BufferedReader reader = null;
+                            InputStream in = null;
                             try {
-                                reader = new BufferedReader(
-                                new InputStreamReader(connection.getInputStream(), "UTF-8"));
-                            
-                            StringBuilder eventData = new StringBuilder();
-                            String line;
-                            
-                            long lastKeepAliveTime = System.currentTimeMillis();
+                                in = connection.getInputStream();
+                                parser.reset();
+                                long lastActivityTime = System.currentTimeMillis();
                                 while (isRunning) {
                                     // Check if connection is still valid before reading
-                                    synchronized (this) {
+                                    synchronized (SseConnectionProvider.this) {
                                         if (currentConnection != connection) {
                                             // Connection was replaced, break out
                                             Log.d(TAG, "Connection replaced, breaking read loop");
@@ -83,75 +121,40 @@ public class SseConnectionProvider implements ConnectionProvider {
                                         }
                                     }
                                     
-                                    // Set a read timeout to prevent getting stuck
+                                    int read;
                                     try {
-                                        line = reader.readLine();
+                                        read = in.read(readBuffer);
                                     } catch (java.net.SocketTimeoutException e) {
                                         // Read timeout - check keep-alive
-                                        long timeSinceLastKeepAlive = System.currentTimeMillis() - lastKeepAliveTime;
-                                        if (timeSinceLastKeepAlive > 60000) {
+                                        long timeSinceLastKeepAlive = System.currentTimeMillis() - lastActivityTime;
+                                        if (timeSinceLastKeepAlive > KEEP_ALIVE_TIMEOUT) {
                                             Log.w(TAG, "Read timeout and no keep-alive for " + timeSinceLastKeepAlive + "ms, reconnecting...");
                                             break;
                                         }
                                         continue;
                                     }
                                     
-                                    if (line == null) {
+                                    if (read < 0) {
                                         // End of stream - server closed connection
                                         Log.d(TAG, "End of stream, server closed connection");
                                         break;
                                     }
                                     
-                                // Handle keep-alive messages (SSE comments starting with :)
-                                if (line.startsWith(":")) {
-                                    lastKeepAliveTime = System.currentTimeMillis();
-                                    continue;
+                                    // Any bytes (events or keep-alive comments) show the stream is alive
+                                    lastActivityTime = System.currentTimeMillis();
+                                    parser.feed(readBuffer, 0, read);
                                 }
-                                
-                                if (line.startsWith("data: ")) {
-                                    String data = line.substring(6); // Remove "data: " prefix
-                                    eventData.append(data);
-                                    lastKeepAliveTime = System.currentTimeMillis();
-                                } else if (line.trim().isEmpty() && eventData.length() > 0) {
-                                    // Empty line indicates end of event
-                                    final String event = eventData.toString();
-                                    lastKeepAliveTime = System.currentTimeMillis();
-                                    
-                                    if (listener != null) {
-                                        listener.onMessageReceived(event);
-                                    }
-                                    
-                                    eventData.setLength(0);
-                                } else if (line.startsWith("data:")) {
-                                    // Handle data without space after colon
-                                    String data = line.substring(5).trim();
-                                    if (!data.isEmpty()) {
-                                        eventData.append(data);
-                                        lastKeepAliveTime = System.currentTimeMillis();
-                                    }
-                                } else if (!line.trim().isEmpty()) {
-                                    // Any other non-empty line resets keep-alive timer
-                                    lastKeepAliveTime = System.currentTimeMillis();
-                                }
-                                
-                                // Check if we haven't received keep-alive in 60 seconds
-                                long timeSinceLastKeepAlive = System.currentTimeMillis() - lastKeepAliveTime;
-                                if (timeSinceLastKeepAlive > 60000) {
-                                    Log.w(TAG, "No keep-alive received for " + timeSinceLastKeepAlive + "ms, reconnecting...");
-                                    break; // Break to reconnect
-                                }
-                            }
                             } finally {
-                                // Always close reader and connection
-                                if (reader != null) {
+                                // Always close stream and connection
+                                if (in != null) {
                                     try {
-                            reader.close();
+                                        in.close();
                                     } catch (Exception e) {
-                                        Log.e(TAG, "Error closing reader: " + e.getMessage());
+                                        Log.e(TAG, "Error closing stream: " + e.getMessage());
                                     }
                                 }
                                 connection.disconnect();
-                                synchronized (this) {
+                                synchronized (SseConnectionProvider.this) {
                                     if (currentConnection == connection) {
                                         currentConnection = null;
                                     }
@@ -159,7 +162,7 @@ public class SseConnectionProvider implements ConnectionProvider {
                             }
                         } else {
                             connection.disconnect();
-                            synchronized (this) {
+                            synchronized (SseConnectionProvider.this) {
                                 if (currentConnection == connection) {
                                     currentConnection = null;
                                 }
@@ -176,7 +179,7 @@ public class SseConnectionProvider implements ConnectionProvider {
                                 listener.onDisconnected();
                             }
                             // Ensure connection is properly closed
-                            synchronized (this) {
+                            synchronized (SseConnectionProvider.this) {
                                 if (currentConnection != null) {
                                     try {
                                         currentConnection.disconnect();
@@ -189,11 +192,15 @@ public class SseConnectionProvider implements ConnectionProvider {
                         }
                     }
                     
-                    // Reconnect after delay if still running
+                    // Reconnect after a backoff if still running
                     if (isRunning) {
+                        if (connected) {
+                            reconnect.onDisconnected();
+                        } else {
+                            reconnect.onFailure();
+                        }
                         try {
-                            Log.d(TAG, "Waiting " + RECONNECT_DELAY + "ms before reconnecting...");
-                            Thread.sleep(RECONNECT_DELAY);
+                            reconnect.awaitNextAttempt();
                         } catch (InterruptedException e) {
                             Log.d(TAG, "Reconnect interrupted, stopping");
                             break;
@@ -212,6 +219,7 @@ public class SseConnectionProvider implements ConnectionProvider {
     public void disconnect() {
         Log.d(TAG, "Stopping SSE connection");
         isRunning = false;
+        reconnect.close();
         
         synchronized (this) {
             if (currentConnection != null) {
@@ -234,6 +242,27 @@ public class SseConnectionProvider implements ConnectionProvider {
         return isRunning;
     }
     
+    @Override
+    public boolean sendCommand(JSONObject command) {
+        // The event stream only goes one way
+        return false;
+    }
+    
+    // Named events ("event: foo") reach the listener like the server's own messages,
+    // with the event name as their type unless the payload already has one
+    private static String withEventType(String type, String data) {
+        try {
+            JSONObject message = new JSONObject(data);
+            if (!message.has("type")) {
+                message.put("type", type);
+                return message.toString();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Event " + type + " is not a JSON object, passing it on as is");
+        }
+        return data;
+    }
+    
     /**
      * Get the current channel being used for this connection.
      */
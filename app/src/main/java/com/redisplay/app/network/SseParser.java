@@ -0,0 +1,193 @@
+package com.redisplay.app.network;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Incremental parser for a text/event-stream, fed raw bytes as they arrive.
+ *
+ * Follows the event-stream format of the HTML spec: lines end in LF, CR or CRLF (also
+ * split across reads), "field: value" lines with one optional space after the colon,
+ * comments starting with ':', multi-line data joined with LF, and the event, id and
+ * retry fields. Field names are matched on the bytes and the line and data buffers are
+ * reused, so the only allocations per event are the strings handed to the handler.
+ */
+final class SseParser {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] FIELD_DATA = {'d', 'a', 't', 'a'};
+    private static final byte[] FIELD_EVENT = {'e', 'v', 'e', 'n', 't'};
+    private static final byte[] FIELD_ID = {'i', 'd'};
+    private static final byte[] FIELD_RETRY = {'r', 'e', 't', 'r', 'y'};
+    static final String DEFAULT_EVENT = "message";
+
+    /**
+     * Receives parsed events on the thread that called feed.
+     */
+    interface Handler {
+        /**
+         * A complete event. lastEventId is the stream's last event id, or null if it has
+         * not sent one.
+         */
+        void onEvent(String type, String data, String lastEventId);
+
+        /**
+         * The server asked for a different reconnection delay.
+         */
+        void onRetry(long retryMs);
+
+        /**
+         * A comment line, which servers send as keep-alive.
+         */
+        void onComment();
+    }
+
+    private final Handler handler;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private byte[] data = new byte[1024];
+    private int dataLength;
+    private boolean hasData;
+    private String eventType;
+    private String lastEventId;
+    private boolean skipNextLineFeed; // The previous chunk ended in CR, so a leading LF belongs to it
+
+    SseParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Start a new connection: drops a partly received line or event. The last event id
+     * is kept, like an EventSource does across reconnects.
+     */
+    void reset() {
+        lineLength = 0;
+        dataLength = 0;
+        hasData = false;
+        eventType = null;
+        skipNextLineFeed = false;
+    }
+
+    void feed(byte[] buffer, int offset, int length) {
+        int end = offset + length;
+        int start = offset;
+        for (int i = offset; i < end; i++) {
+            byte b = buffer[i];
+            if (b != '\n' && b != '\r') {
+                continue;
+            }
+            if (b == '\n' && skipNextLineFeed && i == start && lineLength == 0) {
+                // Second half of a CRLF
+                skipNextLineFeed = false;
+                start = i + 1;
+                continue;
+            }
+            appendLine(buffer, start, i - start);
+            processLine();
+            if (b == '\r' && i + 1 < end && buffer[i + 1] == '\n') {
+                i++;
+            }
+            skipNextLineFeed = b == '\r' && i + 1 == end;
+            start = i + 1;
+        }
+        if (start < end) {
+            skipNextLineFeed = false;
+            appendLine(buffer, start, end - start);
+        }
+    }
+
+    private void appendLine(byte[] buffer, int offset, int length) {
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(buffer, offset, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void processLine() {
+        int length = lineLength;
+        lineLength = 0;
+        if (length == 0) {
+            dispatch();
+            return;
+        }
+        if (line[0] == ':') {
+            handler.onComment();
+            return;
+        }
+
+        int colon = 0;
+        while (colon < length && line[colon] != ':') {
+            colon++;
+        }
+        int valueStart = colon < length ? colon + 1 : length;
+        if (valueStart < length && line[valueStart] == ' ') {
+            valueStart++;
+        }
+        int valueLength = length - valueStart;
+
+        if (fieldIs(FIELD_DATA, colon)) {
+            if (dataLength + valueLength + 1 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + valueLength + 1));
+            }
+            System.arraycopy(line, valueStart, data, dataLength, valueLength);
+            dataLength += valueLength;
+            data[dataLength++] = '\n';
+            hasData = true;
+        } else if (fieldIs(FIELD_EVENT, colon)) {
+            eventType = new String(line, valueStart, valueLength, UTF_8);
+        } else if (fieldIs(FIELD_ID, colon)) {
+            String id = new String(line, valueStart, valueLength, UTF_8);
+            // Ids containing NUL are ignored
+            if (id.indexOf('\0') < 0) {
+                lastEventId = id;
+            }
+        } else if (fieldIs(FIELD_RETRY, colon)) {
+            long retry = parseDigits(valueStart, valueLength);
+            if (retry >= 0) {
+                handler.onRetry(retry);
+            }
+        }
+        // Other fields are ignored
+    }
+
+    private boolean fieldIs(byte[] name, int length) {
+        if (length != name.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Value of an all-digit field, or -1 if it is empty or has other characters
+    private long parseDigits(int offset, int length) {
+        if (length == 0 || length > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (line[i] < '0' || line[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (line[i] - '0');
+        }
+        return value;
+    }
+
+    private void dispatch() {
+        if (!hasData) {
+            eventType = null;
+            return;
+        }
+        // Drop the LF after the last data line
+        String payload = new String(data, 0, dataLength - 1, UTF_8);
+        String type = eventType != null && !eventType.isEmpty() ? eventType : DEFAULT_EVENT;
+        dataLength = 0;
+        hasData = false;
+        eventType = null;
+        handler.onEvent(type, payload, lastEventId);
+    }
+}
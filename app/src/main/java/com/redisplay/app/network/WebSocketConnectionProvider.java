@@ -0,0 +1,227 @@
+package com.redisplay.app.network;
+
+import android.util.Log;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.handshake.ServerHandshake;
+import org.json.JSONObject;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection provider for a server's /ws/{channel} endpoint.
+ *
+ * One WebSocket carries view events from the server and tap/next/previous commands to
+ * it, so a tap costs a single frame instead of an HTTP request. permessage-deflate is
+ * offered and used when the server accepts it. The client pings the server and drops a
+ * connection that stops answering; reconnects are paced by ReconnectController.
+ */
+public class WebSocketConnectionProvider implements ConnectionProvider {
+    private static final String TAG = "WebSocketConnectionProvider";
+    private static final int CONNECT_TIMEOUT = 10; // seconds
+    private static final int CONNECTION_LOST_TIMEOUT = 30; // seconds between pings; no pong in 1.5x that drops the connection
+
+    private final String serverUrl;
+    private final String channel;
+    private final ConnectionListener listener;
+    private final ReconnectController.Session reconnect;
+
+    private volatile boolean isRunning = false;
+    private Thread connectThread;
+    private WebSocketClient currentClient; // guarded by this
+
+    public WebSocketConnectionProvider(String serverUrl, String channel, ConnectionListener listener) {
+        this.serverUrl = serverUrl;
+        this.channel = channel != null ? channel : "test"; // Default to "test" if not provided
+        this.listener = listener;
+        this.reconnect = ReconnectController.getInstance().newSession("ws/" + this.channel);
+    }
+
+    @Override
+    public void connect() {
+        if (isRunning) {
+            disconnect();
+        }
+
+        try {
+            if (connectThread != null) {
+                connectThread.join(500);
+            }
+        } catch (InterruptedException e) {
+            // Ignore
+        }
+
+        isRunning = true;
+        reconnect.open();
+        connectThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (isRunning) {
+                    CountDownLatch closed = new CountDownLatch(1);
+                    WebSocketClient client;
+                    try {
+                        client = newClient(webSocketUri(), closed);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Invalid server URL " + serverUrl + ": " + e.getMessage());
+                        if (listener != null) {
+                            listener.onError(e.getMessage());
+                        }
+                        isRunning = false;
+                        break;
+                    }
+                    synchronized (WebSocketConnectionProvider.this) {
+                        currentClient = client;
+                    }
+
+                    boolean connected = false;
+                    try {
+                        Log.d(TAG, "Connecting to WebSocket: " + client.getURI() + " (channel: " + channel + ")");
+                        connected = client.connectBlocking(CONNECT_TIMEOUT, TimeUnit.SECONDS);
+                        if (connected) {
+                            // Messages are delivered on the client's own thread until it closes
+                            closed.await();
+                        } else {
+                            client.close();
+                        }
+                    } catch (InterruptedException e) {
+                        client.close();
+                        break;
+                    } finally {
+                        synchronized (WebSocketConnectionProvider.this) {
+                            if (currentClient == client) {
+                                currentClient = null;
+                            }
+                        }
+                    }
+
+                    if (!isRunning) {
+                        break;
+                    }
+                    if (connected) {
+                        reconnect.onDisconnected();
+                    } else {
+                        reconnect.onFailure();
+                    }
+                    try {
+                        reconnect.awaitNextAttempt();
+                    } catch (InterruptedException e) {
+                        Log.d(TAG, "Reconnect interrupted, stopping");
+                        break;
+                    }
+                }
+            }
+        }, "ws-connect-" + channel);
+        connectThread.start();
+    }
+
+    private WebSocketClient newClient(URI uri, final CountDownLatch closed) {
+        WebSocketClient client = new WebSocketClient(uri, new Draft_6455(new PerMessageDeflateExtension())) {
+            private volatile boolean opened;
+
+            @Override
+            public void onOpen(ServerHandshake handshake) {
+                opened = true;
+                reconnect.onConnected();
+                if (listener != null) {
+                    listener.onConnected();
+                }
+            }
+
+            @Override
+            public void onMessage(String message) {
+                if (message.startsWith("{\"type\":\"command_error\"")) {
+                    // The server's reply to a command it could not carry out
+                    Log.w(TAG, "Command rejected: " + message);
+                    return;
+                }
+                if (listener != null) {
+                    listener.onMessageReceived(message);
+                }
+            }
+
+            @Override
+            public void onClose(int code, String reason, boolean remote) {
+                if (opened) {
+                    Log.d(TAG, "WebSocket closed (" + code + " " + reason + ")");
+                    if (listener != null && isRunning) {
+                        listener.onDisconnected();
+                    }
+                }
+                closed.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (isRunning) {
+                    Log.e(TAG, "Connection error: " + e.getMessage());
+                    if (listener != null) {
+                        listener.onError(e.getMessage());
+                    }
+                }
+            }
+        };
+        client.setConnectionLostTimeout(CONNECTION_LOST_TIMEOUT);
+        return client;
+    }
+
+    private URI webSocketUri() throws Exception {
+        String base = serverUrl;
+        if (base.startsWith("https://")) {
+            base = "wss://" + base.substring("https://".length());
+        } else if (base.startsWith("http://")) {
+            base = "ws://" + base.substring("http://".length());
+        }
+        return new URI(base + "/ws/" + channel);
+    }
+
+    @Override
+    public void disconnect() {
+        Log.d(TAG, "Stopping WebSocket connection");
+        isRunning = false;
+        reconnect.close();
+
+        synchronized (this) {
+            if (currentClient != null) {
+                currentClient.close();
+                currentClient = null;
+            }
+        }
+
+        if (connectThread != null) {
+            connectThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    @Override
+    public boolean sendCommand(JSONObject command) {
+        WebSocketClient client;
+        synchronized (this) {
+            client = currentClient;
+        }
+        if (client == null || !client.isOpen()) {
+            return false;
+        }
+        try {
+            client.send(command.toString());
+            return true;
+        } catch (Exception e) {
+            // Closed in the meantime
+            Log.w(TAG, "Could not send command: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get the current channel being used for this connection.
+     */
+    public String getChannel() {
+        return channel;
+    }
+}
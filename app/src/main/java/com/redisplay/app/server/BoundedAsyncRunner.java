@@ -0,0 +1,200 @@
+package com.redisplay.app.server;
+
+import android.util.Log;
+import fi.iki.elonen.NanoHTTPD;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replacement for NanoHTTPD's DefaultAsyncRunner, which starts an unbounded thread per
+ * connection.
+ *
+ * Connections run on a fixed-size API pool with a bounded wait queue. A worker peeks at
+ * the request line first and hands long-lived requests (SSE streams, long-polls) to a
+ * separate streaming pool, so they can never occupy the threads that serve API calls.
+ * When a pool is full the connection is answered with 503 and closed.
+ */
+public class BoundedAsyncRunner implements NanoHTTPD.AsyncRunner {
+    private static final String TAG = "BoundedAsyncRunner";
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
+    /**
+     * A connection the runner can classify and reject without going through NanoHTTPD.
+     */
+    public interface RoutableClient {
+        /**
+         * Read the request line without consuming it, or null if none arrived.
+         */
+        String peekRequestLine() throws IOException;
+
+        /**
+         * Write a minimal 503 response and close the connection.
+         */
+        void rejectBusy();
+    }
+
+    /**
+     * Decides from the request line whether a connection will be held open.
+     */
+    public interface RequestClassifier {
+        boolean isLongLived(String requestLine);
+    }
+
+    private final ThreadPoolExecutor apiPool;
+    private final ThreadPoolExecutor streamingPool;
+    private final RequestClassifier classifier;
+    private final Set<NanoHTTPD.ClientHandler> running =
+        Collections.newSetFromMap(new ConcurrentHashMap<NanoHTTPD.ClientHandler, Boolean>());
+
+    private final ThreadLocal<Boolean> onStreamingPool = new ThreadLocal<>();
+
+    private final AtomicInteger activeApi = new AtomicInteger();
+    private final AtomicInteger activeStreaming = new AtomicInteger();
+    private final AtomicLong rejectedApi = new AtomicLong();
+    private final AtomicLong rejectedStreaming = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    public BoundedAsyncRunner(int apiThreads, int apiQueueLimit, int streamingThreads, RequestClassifier classifier) {
+        this.classifier = classifier;
+        this.apiPool = new ThreadPoolExecutor(apiThreads, apiThreads,
+            IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(apiQueueLimit), namedThreads("http-api"));
+        this.apiPool.allowCoreThreadTimeOut(true);
+        // No queue: a stream that cannot start now is rejected and the client retries
+        this.streamingPool = new ThreadPoolExecutor(0, streamingThreads,
+            IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), namedThreads("http-stream"));
+    }
+
+    private static ThreadFactory namedThreads(final String prefix) {
+        final AtomicInteger counter = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    @Override
+    public void exec(final NanoHTTPD.ClientHandler handler) {
+        running.add(handler);
+        try {
+            apiPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isLongLived(handler) && handOffToStreamingPool(handler)) {
+                        return;
+                    }
+                    activeApi.incrementAndGet();
+                    try {
+                        handler.run();
+                    } finally {
+                        activeApi.decrementAndGet();
+                        completed.incrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedApi.incrementAndGet();
+            Log.w(TAG, "API pool saturated, rejecting connection");
+            reject(handler);
+        }
+    }
+
+    private boolean isLongLived(NanoHTTPD.ClientHandler handler) {
+        if (!(handler instanceof RoutableClient)) {
+            return false;
+        }
+        try {
+            String requestLine = ((RoutableClient) handler).peekRequestLine();
+            return requestLine != null && classifier.isLongLived(requestLine);
+        } catch (IOException e) {
+            // Let NanoHTTPD run the handler and deal with the broken connection
+            return false;
+        }
+    }
+
+    private boolean handOffToStreamingPool(final NanoHTTPD.ClientHandler handler) {
+        try {
+            streamingPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    activeStreaming.incrementAndGet();
+                    onStreamingPool.set(Boolean.TRUE);
+                    try {
+                        handler.run();
+                    } finally {
+                        onStreamingPool.remove();
+                        activeStreaming.decrementAndGet();
+                        completed.incrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedStreaming.incrementAndGet();
+            Log.w(TAG, "Streaming pool saturated, rejecting connection");
+            reject(handler);
+        }
+        return true;
+    }
+
+    /**
+     * Whether the calling thread serves a connection that was handed to the streaming
+     * pool. Only a connection's first request is classified, so a long-lived request
+     * that follows others on a keep-alive connection runs on an API worker.
+     */
+    public boolean isStreamingThread() {
+        return Boolean.TRUE.equals(onStreamingPool.get());
+    }
+
+    private void reject(NanoHTTPD.ClientHandler handler) {
+        if (handler instanceof RoutableClient) {
+            ((RoutableClient) handler).rejectBusy();
+        } else {
+            handler.close();
+        }
+        running.remove(handler);
+    }
+
+    @Override
+    public void closed(NanoHTTPD.ClientHandler handler) {
+        running.remove(handler);
+    }
+
+    @Override
+    public void closeAll() {
+        for (NanoHTTPD.ClientHandler handler : running) {
+            handler.close();
+        }
+        running.clear();
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            stats.put("activeApi", activeApi.get());
+            stats.put("queuedApi", apiPool.getQueue().size());
+            stats.put("rejectedApi", rejectedApi.get());
+            stats.put("activeStreaming", activeStreaming.get());
+            stats.put("rejectedStreaming", rejectedStreaming.get());
+            stats.put("completed", completed.get());
+        } catch (Exception e) {
+            Log.e(TAG, "Error building worker stats: " + e.getMessage());
+        }
+        return stats;
+    }
+}
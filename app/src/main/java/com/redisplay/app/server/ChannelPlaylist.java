@@ -0,0 +1,220 @@
+package com.redisplay.app.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A channel's rotation order: the playable (present and enabled) views of its configured
+ * list, in configured order, with each view's position so next/previous are O(1).
+ *
+ * For automatic rotation the playlist also precomputes a weighted sequence in which a
+ * view with metadata.weight w appears w times, spread evenly, and the list of priority
+ * views, which stay out of the sequence and are picked by PlaylistEngine as interrupts.
+ *
+ * Playlists are immutable. When one view is added, removed, changed, enabled or disabled,
+ * withView derives the new playlist from the old one without consulting the catalogue;
+ * a change to the configured list replaces the playlist.
+ */
+final class ChannelPlaylist {
+    static final ChannelPlaylist EMPTY = new ChannelPlaylist(new ArrayList<String>(), new ArrayList<ViewEntry>());
+
+    private final List<String> members; // Configured order, without duplicates
+    private final Set<String> memberSet;
+    private final String[] ids; // Playable members in configured order
+    private final ViewEntry[] entries; // Entry of each of ids
+    private final Map<String, Integer> positions; // viewId -> index in ids
+    private final int[] sequence; // Indexes into ids in weighted rotation order, without priority views
+    private final int[] firstSlots; // Index in ids -> first slot in sequence, -1 for priority views
+    private final int[] interrupts; // Indexes into ids of priority views, highest priority first
+
+    ChannelPlaylist(Collection<String> members, List<ViewEntry> playable) {
+        this(new ArrayList<>(new LinkedHashSet<>(members)), new LinkedHashSet<>(members), playable);
+    }
+
+    private ChannelPlaylist(List<String> members, Set<String> memberSet, List<ViewEntry> playable) {
+        this.members = members;
+        this.memberSet = memberSet;
+        this.entries = playable.toArray(new ViewEntry[playable.size()]);
+        this.ids = new String[entries.length];
+        this.positions = new HashMap<>(entries.length * 2);
+        for (int i = 0; i < entries.length; i++) {
+            ids[i] = entries[i].id;
+            positions.put(ids[i], i);
+        }
+        this.sequence = buildSequence(entries);
+        this.firstSlots = new int[entries.length];
+        Arrays.fill(firstSlots, -1);
+        for (int slot = sequence.length - 1; slot >= 0; slot--) {
+            firstSlots[sequence[slot]] = slot;
+        }
+        this.interrupts = buildInterrupts(entries);
+    }
+
+    // Each copy k of a view with weight w sits at (k + 0.5) / w of the cycle, so heavier
+    // views are spread evenly instead of repeating back to back. Ties keep configured order.
+    private static int[] buildSequence(final ViewEntry[] entries) {
+        int length = 0;
+        boolean weighted = false;
+        for (ViewEntry entry : entries) {
+            if (entry.priority == 0) {
+                length += entry.weight;
+                weighted |= entry.weight > 1;
+            }
+        }
+        int[] sequence = new int[length];
+        if (!weighted) {
+            int slot = 0;
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].priority == 0) {
+                    sequence[slot++] = i;
+                }
+            }
+            return sequence;
+        }
+
+        final double[] offsets = new double[length];
+        Integer[] slots = new Integer[length];
+        int slot = 0;
+        for (int i = 0; i < entries.length; i++) {
+            ViewEntry entry = entries[i];
+            if (entry.priority != 0) {
+                continue;
+            }
+            for (int copy = 0; copy < entry.weight; copy++) {
+                sequence[slot] = i;
+                offsets[slot] = (copy + 0.5) / entry.weight;
+                slots[slot] = slot;
+                slot++;
+            }
+        }
+        final int[] owners = sequence.clone();
+        Arrays.sort(slots, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byOffset = Double.compare(offsets[a], offsets[b]);
+                return byOffset != 0 ? byOffset : owners[a] - owners[b];
+            }
+        });
+        for (int i = 0; i < length; i++) {
+            sequence[i] = owners[slots[i]];
+        }
+        return sequence;
+    }
+
+    private static int[] buildInterrupts(final ViewEntry[] entries) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].priority > 0) {
+                indexes.add(i);
+            }
+        }
+        // Stable sort, so equal priorities keep configured order
+        Collections.sort(indexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return entries[b].priority - entries[a].priority;
+            }
+        });
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * This playlist with the given view's new entry, or with the view unplayable if entry
+     * is null. Returns this if the view is not a member or nothing changed.
+     */
+    ChannelPlaylist withView(String id, ViewEntry entry) {
+        Integer position = positions.get(id);
+        if (!memberSet.contains(id) || (position == null ? entry == null : entries[position] == entry)) {
+            return this;
+        }
+        List<ViewEntry> updated = new ArrayList<>(entries.length + 1);
+        for (String member : members) {
+            if (member.equals(id)) {
+                if (entry != null) {
+                    updated.add(entry);
+                }
+            } else {
+                Integer memberPosition = positions.get(member);
+                if (memberPosition != null) {
+                    updated.add(entries[memberPosition]);
+                }
+            }
+        }
+        return new ChannelPlaylist(members, memberSet, updated);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    /**
+     * The first view after currentId that is on schedule at minuteOfWeek, wrapping around.
+     * Starts from the beginning if currentId is not in the playlist. Returns currentId if
+     * it is the only view on schedule, or null if none is.
+     */
+    String next(String currentId, int minuteOfWeek) {
+        return step(currentId, 1, minuteOfWeek);
+    }
+
+    /**
+     * Like next, but backwards; starts from the end if currentId is not in the playlist.
+     */
+    String previous(String currentId, int minuteOfWeek) {
+        return step(currentId, -1, minuteOfWeek);
+    }
+
+    private String step(String currentId, int direction, int minuteOfWeek) {
+        int count = ids.length;
+        Integer position = currentId != null ? positions.get(currentId) : null;
+        int start = position != null ? position : (direction > 0 ? -1 : count);
+        // Without schedules the first candidate is taken; off-schedule views are skipped
+        for (int i = 1; i <= count; i++) {
+            int index = ((start + direction * i) % count + count) % count;
+            if (entries[index].isScheduledAt(minuteOfWeek)) {
+                return ids[index];
+            }
+        }
+        return null;
+    }
+
+    int sequenceLength() {
+        return sequence.length;
+    }
+
+    ViewEntry sequenceEntry(int slot) {
+        return entries[sequence[slot]];
+    }
+
+    /**
+     * The first slot of the view in the weighted sequence, or -1 if it has none (priority
+     * views, views not in the playlist).
+     */
+    int firstSlotOf(String id) {
+        Integer position = id != null ? positions.get(id) : null;
+        return position != null ? firstSlots[position] : -1;
+    }
+
+    int interruptCount() {
+        return interrupts.length;
+    }
+
+    ViewEntry interruptEntry(int index) {
+        return entries[interrupts[index]];
+    }
+}
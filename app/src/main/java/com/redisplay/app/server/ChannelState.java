@@ -0,0 +1,58 @@
+package com.redisplay.app.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Everything InternalViewManager keeps for one channel: its current view, manual
+ * overrides, playlist, rotation engine, version and in-process subscribers.
+ *
+ * Playback changes on a channel synchronize on its state object only, so channels
+ * rotate, navigate and long-poll without contending with each other. The fields read
+ * from other threads (current view, activation time, overrides) can be read without
+ * the lock.
+ */
+final class ChannelState {
+    final String name;
+    volatile String currentViewId; // null if the channel shows nothing
+    volatile long activatedAt;
+    final Map<String, Long> manualOverrides = new ConcurrentHashMap<>(); // viewId -> timestamp
+    final List<InternalViewManager.ViewChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    ChannelPlaylist playlist; // guarded by this; null until first use or after the channel's list changes
+    final PlaylistEngine engine = new PlaylistEngine(); // guarded by this
+    private long version; // guarded by this
+
+    ChannelState(String name) {
+        this.name = name;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Record that what the channel serves changed and wake long-polling readers.
+     */
+    synchronized void bumpVersion() {
+        version++;
+        notifyAll();
+    }
+
+    /**
+     * Block until the version differs from knownVersion or the timeout expires, and
+     * return the version at that point.
+     */
+    synchronized long awaitChange(long knownVersion, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (version != knownVersion || remaining <= 0) {
+                return version;
+            }
+            wait(remaining);
+        }
+    }
+}
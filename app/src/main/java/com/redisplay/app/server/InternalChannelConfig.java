@@ -4,33 +4,49 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class InternalChannelConfig {
     private static final String TAG = "InternalChannelConfig";
     private static final String PREFS_NAME = "RedisplayChannelConfig";
     private static final String KEY_CHANNEL_CONFIG = "channel_config";
+    static final String DEFAULT_CHANNEL = "test";
     
     private Context context;
-    private Map<String, JSONObject> channelConfigs = new HashMap<>();
+    // Readers look up one channel without locking; writers synchronize on this object and
+    // replace a channel's config object instead of editing it, so the views list a reader
+    // holds never changes under it
+    private final Map<String, JSONObject> channelConfigs = new ConcurrentHashMap<>();
+    private ChannelViewsListener channelViewsListener;
+    
+    /**
+     * Notified after a channel's view list is replaced or reordered.
+     */
+    public interface ChannelViewsListener {
+        void onChannelViewsChanged(String channel);
+    }
     
     public InternalChannelConfig(Context context) {
         this.context = context;
         loadChannelConfig();
         
         // Initialize default channel if none exists
-        if (!channelConfigs.containsKey("test")) {
-            JSONObject defaultConfig = new JSONObject();
-            try {
-                defaultConfig.put("views", new JSONArray());
-                defaultConfig.put("quadrants", new JSONObject());
-                defaultConfig.put("rotation", new JSONObject());
-                channelConfigs.put("test", defaultConfig);
-                saveChannelConfig();
-            } catch (Exception e) {
-                Log.e(TAG, "Error initializing default config: " + e.getMessage());
-            }
+        if (!channelConfigs.containsKey(DEFAULT_CHANNEL)) {
+            channelConfigs.put(DEFAULT_CHANNEL, newDefaultConfig());
+            saveChannelConfig();
+        }
+    }
+    
+    public void setChannelViewsListener(ChannelViewsListener listener) {
+        this.channelViewsListener = listener;
+    }
+    
+    private void notifyChannelViewsChanged(String channel) {
+        if (channelViewsListener != null) {
+            channelViewsListener.onChannelViewsChanged(channel);
         }
     }
     
@@ -74,55 +90,119 @@ public class InternalChannelConfig {
         }
     }
     
+    private static JSONObject newDefaultConfig() {
+        JSONObject defaultConfig = new JSONObject();
+        try {
+            defaultConfig.put("views", new JSONArray());
+            defaultConfig.put("quadrants", new JSONObject());
+            defaultConfig.put("rotation", new JSONObject());
+        } catch (Exception e) {
+            Log.e(TAG, "Error creating default config: " + e.getMessage());
+        }
+        return defaultConfig;
+    }
+    
     public JSONObject getChannelConfig(String channel) {
         JSONObject config = channelConfigs.get(channel);
         if (config == null) {
             // Return default config
-            JSONObject defaultConfig = new JSONObject();
-            try {
-                defaultConfig.put("views", new JSONArray());
-                defaultConfig.put("quadrants", new JSONObject());
-                defaultConfig.put("rotation", new JSONObject());
-            } catch (Exception e) {
-                Log.e(TAG, "Error creating default config: " + e.getMessage());
-            }
-            return defaultConfig;
+            return newDefaultConfig();
         }
         return config;
     }
     
-    public void setChannelConfig(String channel, JSONObject config) {
+    public synchronized void setChannelConfig(String channel, JSONObject config) {
         channelConfigs.put(channel, config);
         saveChannelConfig();
+        notifyChannelViewsChanged(channel);
         Log.d(TAG, "Set config for channel: " + channel);
     }
     
+    public boolean hasChannel(String channel) {
+        return channelConfigs.containsKey(channel);
+    }
+    
+    /**
+     * Add a channel with the given config (or an empty one). Returns false if the
+     * channel already exists.
+     */
+    public synchronized boolean createChannel(String channel, JSONObject config) {
+        if (channelConfigs.containsKey(channel)) {
+            return false;
+        }
+        channelConfigs.put(channel, config != null ? config : newDefaultConfig());
+        saveChannelConfig();
+        notifyChannelViewsChanged(channel);
+        Log.d(TAG, "Created channel: " + channel);
+        return true;
+    }
+    
+    /**
+     * Remove a channel's config. Returns false if the channel does not exist.
+     */
+    public synchronized boolean deleteChannel(String channel) {
+        if (channelConfigs.remove(channel) == null) {
+            return false;
+        }
+        saveChannelConfig();
+        notifyChannelViewsChanged(channel);
+        Log.d(TAG, "Deleted channel: " + channel);
+        return true;
+    }
+    
+    // Returns a copy, so callers can edit it and hand it back to setChannelViews
     public JSONArray getChannelViews(String channel) {
+        JSONArray views = getChannelConfig(channel).optJSONArray("views");
+        JSONArray copy = new JSONArray();
+        for (int i = 0; views != null && i < views.length(); i++) {
+            copy.put(views.opt(i));
+        }
+        return copy;
+    }
+    
+    // Copy of the channel's config with one key replaced
+    private JSONObject configWith(String channel, String key, Object value) throws JSONException {
         JSONObject config = getChannelConfig(channel);
+        JSONObject copy = new JSONObject();
+        Iterator<String> keys = config.keys();
+        while (keys.hasNext()) {
+            String name = keys.next();
+            copy.put(name, config.get(name));
+        }
+        copy.put(key, value);
+        return copy;
+    }
+    
+    public synchronized void setChannelViews(String channel, JSONArray views) {
         try {
-            return config.optJSONArray("views");
+            channelConfigs.put(channel, configWith(channel, "views", views));
+            saveChannelConfig();
+            notifyChannelViewsChanged(channel);
+            Log.d(TAG, "Set views for channel: " + channel);
         } catch (Exception e) {
-            return new JSONArray();
+            Log.e(TAG, "Error setting channel views: " + e.getMessage());
         }
     }
     
-    public void setChannelViews(String channel, JSONArray views) {
-        JSONObject config = getChannelConfig(channel);
+    // Replace the view lists of several channels with a single config write
+    public synchronized void setAllChannelViews(Map<String, JSONArray> channelViews) {
         try {
-            config.put("views", views);
-            channelConfigs.put(channel, config);
+            for (Map.Entry<String, JSONArray> entry : channelViews.entrySet()) {
+                channelConfigs.put(entry.getKey(), configWith(entry.getKey(), "views", entry.getValue()));
+            }
             saveChannelConfig();
-            Log.d(TAG, "Set views for channel: " + channel);
+            for (String channel : channelViews.keySet()) {
+                notifyChannelViewsChanged(channel);
+            }
+            Log.d(TAG, "Set views for " + channelViews.size() + " channels");
         } catch (Exception e) {
             Log.e(TAG, "Error setting channel views: " + e.getMessage());
         }
     }
     
-    public void setChannelQuadrants(String channel, JSONObject quadrants) {
-        JSONObject config = getChannelConfig(channel);
+    public synchronized void setChannelQuadrants(String channel, JSONObject quadrants) {
         try {
-            config.put("quadrants", quadrants);
-            channelConfigs.put(channel, config);
+            channelConfigs.put(channel, configWith(channel, "quadrants", quadrants));
             saveChannelConfig();
             Log.d(TAG, "Set quadrants for channel: " + channel);
         } catch (Exception e) {
@@ -4,14 +4,21 @@ import android.util.Log;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import fi.iki.elonen.NanoHTTPD;
+import fi.iki.elonen.NanoWSD;
+import com.redisplay.app.ContentManager;
+import com.redisplay.app.network.HttpClient;
+import com.redisplay.app.network.ReconnectController;
 import android.content.Context;
 import android.content.res.AssetManager;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
 import java.util.*;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,76 +30,412 @@ public class InternalHttpServer extends NanoHTTPD {
     private static final int STATIC_PORT = 8888; // Use static port for testing
     private static final int MIN_PORT = 8000;
     private static final int MAX_PORT = 9000;
+    private static final long MAX_LONG_POLL_WAIT = 25000; // Stay below typical client read timeouts
+    private static final int API_WORKER_THREADS = 8;
+    private static final int API_QUEUE_LIMIT = 32; // Connections waiting for an API worker before 503
+    private static final int STREAMING_WORKER_THREADS = 32; // Concurrent SSE streams and long-polls
+    private static final int MAX_REQUEST_LINE = 8192;
+    private static final byte[] CURRENT_VIEW_PREFIX = ViewEntry.utf8("{\"type\":\"view_change\",\"view\":");
+    private static final byte[] JSON_NULL = ViewEntry.utf8("null");
+    private static final int MAX_REQUEST_BODY = 16 * 1024 * 1024; // Views may carry inline base64 images
     
     private InternalViewManager viewManager;
     private InternalChannelConfig channelConfig;
     private Context context;
     private int actualPort;
     private String serverAddress;
+    private final String serverEpoch = Long.toString(System.currentTimeMillis(), 36);
+    private final RequestRouter router = buildRouter();
+    private final BoundedAsyncRunner workerPool;
+    
+    // Assets are immutable for the lifetime of the APK, so each is built once on first request
+    private volatile StaticAsset webInterfaceAsset;
+    private volatile StaticAsset viewTypesDocumentationAsset;
+    private volatile StaticAsset viewTypesApiAsset;
     
     // SSE connection management - channel -> Set of SSE clients
     private final Map<String, Set<SSEClient>> sseClients = new ConcurrentHashMap<>();
+    private final java.util.concurrent.atomic.AtomicLong sseClientCounter = new java.util.concurrent.atomic.AtomicLong();
+    private static final long SSE_KEEP_ALIVE_INTERVAL = 15000; // Comment frame so clients can detect dead streams
+    private static final int SSE_CLIENT_QUEUE_CAPACITY = 16; // Frames buffered per client before it is evicted
+    private static final byte[] SSE_KEEP_ALIVE_FRAME = ": keepalive\n\n".getBytes(java.nio.charset.Charset.forName("UTF-8"));
+    // Events kept per channel for Last-Event-ID replay; fewer than a client queue holds
+    private static final int SSE_REPLAY_EVENTS = SSE_CLIENT_QUEUE_CAPACITY / 2;
+    private static final long SSE_REPLAY_BYTES = 256 * 1024;
+    
+    // WebSocket displays - channel -> Set of clients; fed the same broadcasts as SSE
+    private final Map<String, Set<WSClient>> wsClients = new ConcurrentHashMap<>();
+    private final java.util.concurrent.atomic.AtomicLong wsClientCounter = new java.util.concurrent.atomic.AtomicLong();
+    private static final long WS_PING_INTERVAL = 15000; // Ping idle connections; the pong is the display's sign of life
+    private static final int WS_READ_TIMEOUT = 45000; // Close a connection that sent nothing, not even pongs, for this long
+    private static final byte[] WS_PING_PAYLOAD = new byte[0];
+    
+    // channel -> recently broadcast events; each log's lock also orders its channel's broadcasts
+    private final Map<String, SseEventLog> sseEventLogs = new ConcurrentHashMap<>();
+    
+    // Broadcast counters
+    private final java.util.concurrent.atomic.AtomicLong broadcastCount = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong broadcastFanOutNanos = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong broadcastMaxFanOutNanos = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong droppedSSEClients = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong resumedSSEClients = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong replayedSSEEvents = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong droppedWSClients = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong wsCommands = new java.util.concurrent.atomic.AtomicLong();
     
-    // Inner class to represent an SSE client connection
-    private static class SSEClient {
-        final OutputStream outputStream;
+    // Inner class to represent an SSE client connection.
+    // The client is the InputStream of a chunked NanoHTTPD response: the connection
+    // thread blocks in read() on the bounded outbound queue and is the only writer to
+    // the socket, so broadcasters only enqueue and never wait on a slow display.
+    private class SSEClient extends InputStream {
         final String channel;
         final String clientId;
+        final java.util.concurrent.BlockingQueue<byte[]> outbound =
+            new java.util.concurrent.ArrayBlockingQueue<>(SSE_CLIENT_QUEUE_CAPACITY);
         volatile boolean closed = false;
+        private byte[] current;
+        private int position;
         
-        SSEClient(OutputStream os, String ch, String id) {
-            this.outputStream = os;
+        SSEClient(String ch, String id) {
             this.channel = ch;
             this.clientId = id;
         }
         
-        synchronized void send(String data) {
-            if (closed) return;
-            try {
-                outputStream.write(data.getBytes("UTF-8"));
-                outputStream.flush();
-            } catch (Exception e) {
-                closed = true;
+        /**
+         * Queue a pre-serialized frame. Returns false if the client is closed or its
+         * queue is full, i.e. it has stopped draining and should be evicted.
+         */
+        boolean send(byte[] frame) {
+            if (closed) return false;
+            return outbound.offer(frame);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : (single[0] & 0xff);
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            // NanoHTTPD ends the chunked body as soon as read() returns <= 0,
+            // so block until a frame (or a keep-alive comment) is available
+            while (current == null || position >= current.length) {
+                if (closed) {
+                    return -1;
+                }
+                try {
+                    current = outbound.poll(SSE_KEEP_ALIVE_INTERVAL, java.util.concurrent.TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+                if (current == null) {
+                    current = SSE_KEEP_ALIVE_FRAME;
+                }
+                position = 0;
             }
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
         }
         
-        void close() {
+        @Override
+        public void close() {
+            // Called by NanoHTTPD when the response is finished or the socket write failed,
+            // and by broadcastToChannel when the client is evicted
             closed = true;
+            outbound.clear();
+            outbound.offer(new byte[0]); // Wake up a blocked reader
+            unregisterSSEClient(this);
+        }
+    }
+    
+    // A display connected over /ws/{channel}. After the handshake NanoHTTPD's connection
+    // thread stays in the WebSocket read loop, handling commands and pongs; a writer
+    // thread of its own drains the bounded outbound queue and pings when idle, so
+    // broadcasters only enqueue, as with SSE clients.
+    private class WSClient extends NanoWSD.WebSocket {
+        final String channel;
+        final String clientId;
+        final java.util.concurrent.BlockingQueue<byte[]> outbound =
+            new java.util.concurrent.ArrayBlockingQueue<>(SSE_CLIENT_QUEUE_CAPACITY);
+        volatile boolean closed = false;
+        
+        WSClient(IHTTPSession handshake, String ch, String id) {
+            super(handshake);
+            this.channel = ch;
+            this.clientId = id;
+        }
+        
+        /**
+         * Queue a text message (UTF-8 JSON). Returns false if the client is closed or its
+         * queue is full.
+         */
+        boolean enqueue(byte[] payload) {
+            if (closed) return false;
+            return outbound.offer(payload);
+        }
+        
+        /**
+         * Stop sending and unregister; the writer thread closes the connection. Safe to
+         * call from a broadcaster, it never touches the socket.
+         */
+        void evict() {
+            closed = true;
+            outbound.clear();
+            outbound.offer(WS_PING_PAYLOAD); // Wake up the writer
+            unregisterWSClient(this);
+        }
+        
+        @Override
+        protected void onOpen() {
+            // Same ordering as handleSSE: the initial view is queued and the client
+            // registered before any further broadcast on the channel
+            SseEventLog log = getEventLog(channel);
+            synchronized (log) {
+                ViewEntry currentView = viewManager.getCurrentViewEntry(channel);
+                if (currentView != null) {
+                    enqueue(toWebSocketPayload(currentView.getInitialViewFrame()));
+                }
+                registerWSClient(this);
+            }
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeLoop();
+                }
+            }, "ws-writer-" + clientId);
+            writer.setDaemon(true);
+            writer.start();
+        }
+        
+        private void writeLoop() {
             try {
-                outputStream.close();
-            } catch (Exception e) {
-                // Ignore
+                while (!closed) {
+                    byte[] payload = outbound.poll(WS_PING_INTERVAL, java.util.concurrent.TimeUnit.MILLISECONDS);
+                    if (closed) {
+                        break;
+                    }
+                    if (payload == null) {
+                        ping(WS_PING_PAYLOAD);
+                    } else {
+                        sendFrame(new NanoWSD.WebSocketFrame(NanoWSD.WebSocketFrame.OpCode.Text, true, payload));
+                    }
+                }
+                if (isOpen()) {
+                    close(NanoWSD.WebSocketFrame.CloseCode.GoingAway, "Evicted", false);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                // The read loop sees the broken socket too and closes the connection
+                Log.d(TAG, "WebSocket client " + clientId + " write failed: " + e.getMessage());
+                evict();
+            }
+        }
+        
+        @Override
+        protected void onMessage(NanoWSD.WebSocketFrame message) {
+            handleWebSocketCommand(this, message.getTextPayload());
+        }
+        
+        @Override
+        protected void onPong(NanoWSD.WebSocketFrame pong) {
+            // Reading it already reset the socket's read timeout
+        }
+        
+        @Override
+        protected void onClose(NanoWSD.WebSocketFrame.CloseCode code, String reason, boolean initiatedByRemote) {
+            if (!closed) {
+                evict();
+            }
+            Log.d(TAG, "WebSocket client " + clientId + " closed: " + code + " " + reason);
+        }
+        
+        @Override
+        protected void onException(IOException exception) {
+            // Read timeout or connection reset; NanoWSD closes the socket next
+            Log.d(TAG, "WebSocket client " + clientId + " error: " + exception.getMessage());
+        }
+    }
+    
+    private void registerSSEClient(SSEClient client) {
+        Set<SSEClient> clients = sseClients.get(client.channel);
+        if (clients == null) {
+            Set<SSEClient> created = Collections.newSetFromMap(new ConcurrentHashMap<SSEClient, Boolean>());
+            clients = sseClients.putIfAbsent(client.channel, created);
+            if (clients == null) {
+                clients = created;
             }
         }
+        clients.add(client);
+        Log.d(TAG, "SSE client " + client.clientId + " connected to channel " + client.channel + " (" + clients.size() + " clients)");
+    }
+    
+    private void unregisterSSEClient(SSEClient client) {
+        Set<SSEClient> clients = sseClients.get(client.channel);
+        if (clients != null && clients.remove(client)) {
+            Log.d(TAG, "SSE client " + client.clientId + " disconnected from channel " + client.channel);
+        }
+    }
+    
+    private void registerWSClient(WSClient client) {
+        Set<WSClient> clients = wsClients.get(client.channel);
+        if (clients == null) {
+            Set<WSClient> created = Collections.newSetFromMap(new ConcurrentHashMap<WSClient, Boolean>());
+            clients = wsClients.putIfAbsent(client.channel, created);
+            if (clients == null) {
+                clients = created;
+            }
+        }
+        clients.add(client);
+        Log.d(TAG, "WebSocket client " + client.clientId + " connected to channel " + client.channel + " (" + clients.size() + " clients)");
+    }
+    
+    private void unregisterWSClient(WSClient client) {
+        Set<WSClient> clients = wsClients.get(client.channel);
+        if (clients != null && clients.remove(client)) {
+            Log.d(TAG, "WebSocket client " + client.clientId + " disconnected from channel " + client.channel);
+        }
+    }
+    
+    private SseEventLog getEventLog(String channel) {
+        SseEventLog log = sseEventLogs.get(channel);
+        if (log == null) {
+            SseEventLog created = new SseEventLog(serverEpoch, SSE_REPLAY_EVENTS, SSE_REPLAY_BYTES);
+            log = sseEventLogs.putIfAbsent(channel, created);
+            if (log == null) {
+                log = created;
+            }
+        }
+        return log;
+    }
+    
+    private int getChannelClientCount(String channel) {
+        Set<SSEClient> clients = sseClients.get(channel);
+        Set<WSClient> webSockets = wsClients.get(channel);
+        return (clients != null ? clients.size() : 0) + (webSockets != null ? webSockets.size() : 0);
+    }
+    
+    private static byte[] toSSEFrame(JSONObject message) throws IOException {
+        return ("data: " + message.toString() + "\n\n").getBytes("UTF-8");
+    }
+    
+    // The JSON of a single-line SSE frame ("data: {...}\n\n"), which is what a WebSocket
+    // display gets as a text message
+    private static byte[] toWebSocketPayload(byte[] frame) {
+        return Arrays.copyOfRange(frame, 6, frame.length - 2);
     }
     
     // Broadcast a message to all SSE clients for a channel
     public void broadcastToChannel(String channel, JSONObject message) {
+        try {
+            broadcastFrameToChannel(channel, toSSEFrame(message));
+        } catch (IOException e) {
+            Log.e(TAG, "Error broadcasting to channel: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Queue an already serialized SSE frame to every client on the channel. The frame
+     * gets the channel's next event id and is kept for Last-Event-ID replay.
+     */
+    public void broadcastFrameToChannel(String channel, byte[] frame) {
+        SseEventLog log = getEventLog(channel);
+        synchronized (log) {
+            fanOut(channel, log.append(frame));
+            fanOutWebSocket(channel, frame);
+        }
+    }
+    
+    private void fanOutWebSocket(String channel, byte[] frame) {
+        Set<WSClient> clients = wsClients.get(channel);
+        if (clients == null || clients.isEmpty()) {
+            return;
+        }
+        byte[] payload = toWebSocketPayload(frame);
+        for (WSClient client : clients) {
+            if (!client.enqueue(payload) && !client.closed) {
+                Log.w(TAG, "Evicting slow WebSocket client " + client.clientId + " on channel " + channel);
+                droppedWSClients.incrementAndGet();
+                client.evict();
+            } else if (client.closed) {
+                clients.remove(client);
+            }
+        }
+    }
+    
+    private void fanOut(String channel, byte[] frame) {
         Set<SSEClient> clients = sseClients.get(channel);
         if (clients == null || clients.isEmpty()) {
             return;
         }
         
+        long start = System.nanoTime();
+        // Every client queue shares the same frame bytes
+        for (SSEClient client : clients) {
+            if (!client.send(frame) && !client.closed) {
+                // Queue overflow: the display stopped reading. Evict it rather than
+                // buffer without bound - it gets a fresh initial_view on reconnect.
+                Log.w(TAG, "Evicting slow SSE client " + client.clientId + " on channel " + channel);
+                droppedSSEClients.incrementAndGet();
+                client.close();
+            } else if (client.closed) {
+                clients.remove(client);
+            }
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        broadcastCount.incrementAndGet();
+        broadcastFanOutNanos.addAndGet(elapsed);
+        long max = broadcastMaxFanOutNanos.get();
+        while (elapsed > max && !broadcastMaxFanOutNanos.compareAndSet(max, elapsed)) {
+            max = broadcastMaxFanOutNanos.get();
+        }
+    }
+    
+    public JSONObject getBroadcastStats() {
+        JSONObject stats = new JSONObject();
         try {
-            String data = "data: " + message.toString() + "\n\n";
-            List<SSEClient> toRemove = new ArrayList<>();
-            
-            for (SSEClient client : clients) {
-                if (client.closed) {
-                    toRemove.add(client);
-                } else {
-                    client.send(data);
-                }
+            int clientCount = 0;
+            for (Set<SSEClient> clients : sseClients.values()) {
+                clientCount += clients.size();
             }
-            
-            // Clean up closed clients
-            clients.removeAll(toRemove);
-            if (clients.isEmpty()) {
-                sseClients.remove(channel);
+            long count = broadcastCount.get();
+            stats.put("clients", clientCount);
+            stats.put("broadcasts", count);
+            stats.put("avgFanOutMicros", count > 0 ? broadcastFanOutNanos.get() / count / 1000 : 0);
+            stats.put("maxFanOutMicros", broadcastMaxFanOutNanos.get() / 1000);
+            stats.put("droppedClients", droppedSSEClients.get());
+            stats.put("resumedClients", resumedSSEClients.get());
+            stats.put("replayedEvents", replayedSSEEvents.get());
+            int wsClientCount = 0;
+            for (Set<WSClient> clients : wsClients.values()) {
+                wsClientCount += clients.size();
             }
+            stats.put("webSocketClients", wsClientCount);
+            stats.put("droppedWebSocketClients", droppedWSClients.get());
+            stats.put("webSocketCommands", wsCommands.get());
         } catch (Exception e) {
-            Log.e(TAG, "Error broadcasting to channel: " + e.getMessage());
+            Log.e(TAG, "Error building broadcast stats: " + e.getMessage());
+        }
+        return stats;
+    }
+    
+    @Override
+    protected boolean useGzipWhenAccepted(Response r) {
+        // A gzip stream buffers output, which would hold SSE frames back indefinitely
+        if (r.getMimeType() != null && r.getMimeType().startsWith("text/event-stream")) {
+            return false;
+        }
+        // 304 responses carry no body to compress, and cached assets are already compressed
+        if (r.getStatus() == Response.Status.NOT_MODIFIED || r.getHeader("content-encoding") != null) {
+            return false;
         }
+        return super.useGzipWhenAccepted(r);
     }
     
     public InternalHttpServer(Context context, InternalViewManager viewManager, InternalChannelConfig channelConfig) {
@@ -101,6 +444,87 @@ public class InternalHttpServer extends NanoHTTPD {
         this.viewManager = viewManager;
         this.channelConfig = channelConfig;
         this.actualPort = STATIC_PORT;
+        this.workerPool = new BoundedAsyncRunner(API_WORKER_THREADS, API_QUEUE_LIMIT, STREAMING_WORKER_THREADS,
+            new BoundedAsyncRunner.RequestClassifier() {
+                @Override
+                public boolean isLongLived(String requestLine) {
+                    return requestLine.startsWith("GET /sse/")
+                        || requestLine.startsWith("GET /ws/")
+                        || (requestLine.startsWith("GET /api/views/current") && requestLine.contains("wait="));
+                }
+            });
+        setAsyncRunner(workerPool);
+    }
+    
+    @Override
+    protected ClientHandler createClientHandler(Socket finalAccept, InputStream inputStream) {
+        return new RoutedClientHandler(new BufferedInputStream(inputStream), finalAccept);
+    }
+    
+    // Client handler that lets the worker pool peek at the request line before NanoHTTPD
+    // parses it, and answer 503 itself when no worker is available
+    private class RoutedClientHandler extends ClientHandler implements BoundedAsyncRunner.RoutableClient {
+        private final BufferedInputStream input;
+        private final Socket socket;
+        private String requestLine; // First request line, once peeked
+        
+        RoutedClientHandler(BufferedInputStream input, Socket socket) {
+            super(input, socket);
+            this.input = input;
+            this.socket = socket;
+        }
+        
+        @Override
+        public String peekRequestLine() throws IOException {
+            input.mark(MAX_REQUEST_LINE);
+            try {
+                StringBuilder line = new StringBuilder(64);
+                int b;
+                int count = 0;
+                while (count++ < MAX_REQUEST_LINE && (b = input.read()) != -1 && b != '\n') {
+                    if (b != '\r') {
+                        line.append((char) b);
+                    }
+                }
+                requestLine = line.length() > 0 ? line.toString() : null;
+                return requestLine;
+            } finally {
+                input.reset();
+            }
+        }
+        
+        @Override
+        public void run() {
+            if (requestLine != null && requestLine.startsWith("GET /ws/")) {
+                // NanoHTTPD's read timeout suits requests, not a WebSocket that is read for
+                // as long as it is open; pings keep a live one from reaching this.
+                // NanoWSD writes a frame's header and payload separately, which Nagle's
+                // algorithm would hold back until the display acknowledges the header.
+                try {
+                    socket.setSoTimeout(WS_READ_TIMEOUT);
+                    socket.setTcpNoDelay(true);
+                } catch (SocketException e) {
+                    // Connection already gone; the handler fails on its own
+                }
+            }
+            super.run();
+        }
+        
+        @Override
+        public void rejectBusy() {
+            try {
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.1 503 Service Unavailable\r\n"
+                    + "Retry-After: 1\r\n"
+                    + "Content-Length: 0\r\n"
+                    + "Connection: close\r\n\r\n").getBytes("ISO-8859-1"));
+                out.flush();
+            } catch (IOException e) {
+                // Client already gone
+            } finally {
+                close();
+            }
+        }
     }
     
     @Override
@@ -316,116 +740,196 @@ public class InternalHttpServer extends NanoHTTPD {
         return actualPort;
     }
     
+    // Route table, compiled once per server instance
+    private RequestRouter buildRouter() {
+        RequestRouter.Handler webInterface = new RequestRouter.Handler() {
+            @Override
+            public Response handle(IHTTPSession session, Map<String, String> params) {
+                return handleWebInterface(session);
+            }
+        };
+        RequestRouter.Handler viewTypesDocumentation = new RequestRouter.Handler() {
+            @Override
+            public Response handle(IHTTPSession session, Map<String, String> params) {
+                return handleViewTypesDocumentation(session);
+            }
+        };
+        
+        return new RequestRouter()
+            // Web interface and view types documentation
+            .add("GET", "/", webInterface)
+            .add("GET", "/index.html", webInterface)
+            .add("GET", "/view-types", viewTypesDocumentation)
+            .add("GET", "/view-types.html", viewTypesDocumentation)
+            // SSE endpoint
+            .add("GET", "/sse/{channel}", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleSSE(session, params.get("channel"));
+                }
+            })
+            // WebSocket endpoint: view events down, tap/next/previous commands up
+            .add("GET", "/ws/{channel}", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleWebSocket(session, params.get("channel"));
+                }
+            })
+            // Server stats
+            .add("GET", "/api/stats", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleGetStats();
+                }
+            })
+            // Channels
+            .add("GET", "/api/channels", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleGetChannels();
+                }
+            })
+            .add("POST", "/api/channels", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleCreateChannel(session);
+                }
+            })
+            .add("DELETE", "/api/channels/{channel}", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleDeleteChannel(params.get("channel"));
+                }
+            })
+            .add("POST", "/api/channels/{channel}/tap", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleChannelTap(session, params.get("channel"));
+                }
+            })
+            .add("POST", "/api/channels/{channel}/next", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleChannelNext(session, params.get("channel"));
+                }
+            })
+            .add("POST", "/api/channels/{channel}/previous", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleChannelPrevious(session, params.get("channel"));
+                }
+            })
+            // Channel config
+            .add("GET", "/api/channel-config/{channel}", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleGetChannelConfig(params.get("channel"));
+                }
+            })
+            .add("PUT", "/api/channel-config/{channel}", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handlePutChannelConfig(session, params.get("channel"));
+                }
+            })
+            // View types API (JSON)
+            .add("GET", "/api/view-types", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleGetViewTypes(session);
+                }
+            })
+            // Views
+            .add("GET", "/api/views", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleGetViews();
+                }
+            })
+            .add("POST", "/api/views", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handlePostView(session);
+                }
+            })
+            .add("POST", "/api/views/batch", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleBatchViews(session);
+                }
+            })
+            // Polling endpoint for current view (for external clients that cannot hold an SSE stream)
+            .add("GET", "/api/views/current", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleGetCurrentView(session);
+                }
+            })
+            .add("PUT", "/api/views/{id}", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handlePutView(session, params.get("id"));
+                }
+            })
+            // RFC 7386 merge patch; on-screen views get a view_update with just the patch
+            .add("PATCH", "/api/views/{id}", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handlePatchView(session, params.get("id"));
+                }
+            })
+            .add("DELETE", "/api/views/{id}", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleDeleteView(params.get("id"));
+                }
+            })
+            .add("PUT", "/api/views/{id}/enable", new RequestRouter.Handler() {
+                @Override
+                public Response handle(IHTTPSession session, Map<String, String> params) {
+                    return handleSetViewEnabled(session, params.get("id"));
+                }
+            });
+    }
+    
     @Override
     public Response serve(IHTTPSession session) {
         String uri = session.getUri();
         String method = session.getMethod().name();
         
-        Log.d(TAG, method + " " + uri);
-        
-        // CORS headers
-        Map<String, String> headers = session.getHeaders();
-        Map<String, String> responseHeaders = new HashMap<>();
-        responseHeaders.put("Access-Control-Allow-Origin", "*");
-        responseHeaders.put("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        responseHeaders.put("Access-Control-Allow-Headers", "Content-Type");
-        
         if ("OPTIONS".equals(method)) {
             return newFixedLengthResponse(Response.Status.OK, "text/plain", "");
         }
         
-        try {
-            // Serve web interface
-            if (uri.equals("/") || uri.equals("/index.html")) {
-                return handleWebInterface(responseHeaders);
-            }
-            
-            // Serve view types documentation
-            if (uri.equals("/view-types") || uri.equals("/view-types.html")) {
-                return handleViewTypesDocumentation(responseHeaders);
-            }
-            
-            // SSE endpoint
-            if (uri.startsWith("/sse/") && "GET".equals(method)) {
-                return handleSSE(session, uri, responseHeaders);
-            }
-            
-            // Channels endpoint
-            if (uri.equals("/api/channels") && "GET".equals(method)) {
-                return handleGetChannels(responseHeaders);
-            }
-            
-            // Channel config endpoint
-            if (uri.startsWith("/api/channel-config/") && "GET".equals(method)) {
-                return handleGetChannelConfig(uri, responseHeaders);
-            }
-            
-            // View types API endpoint (JSON)
-            if (uri.equals("/api/view-types") && "GET".equals(method)) {
-                return handleGetViewTypes(responseHeaders);
-            }
-            
-            // Views endpoints
-            if (uri.equals("/api/views") && "GET".equals(method)) {
-                return handleGetViews(responseHeaders);
-            }
-            if (uri.equals("/api/views") && "POST".equals(method)) {
-                return handlePostView(session, responseHeaders);
-            }
-            // Polling endpoint for current view (for external clients since SSE doesn't work with NanoHTTPD)
-            if (uri.startsWith("/api/views/current") && "GET".equals(method)) {
-                return handleGetCurrentView(session, uri, responseHeaders);
-            }
-            if (uri.startsWith("/api/views/") && "PUT".equals(method)) {
-                return handlePutView(session, uri, responseHeaders);
-            }
-            if (uri.startsWith("/api/views/") && "DELETE".equals(method)) {
-                return handleDeleteView(uri, responseHeaders);
-            }
-            if (uri.startsWith("/api/views/") && uri.endsWith("/enable") && "PUT".equals(method)) {
-                return handleSetViewEnabled(session, uri, responseHeaders);
-            }
-            
-            // Channel config endpoints
-            if (uri.startsWith("/api/channel-config/") && "PUT".equals(method)) {
-                return handlePutChannelConfig(session, uri, responseHeaders);
-            }
-            
-            // Channel endpoints
-            if (uri.matches("/api/channels/[^/]+/tap") && "POST".equals(method)) {
-                return handleChannelTap(session, uri, responseHeaders);
-            }
-            if (uri.matches("/api/channels/[^/]+/next") && "POST".equals(method)) {
-                return handleChannelNext(session, uri, responseHeaders);
-            }
-            if (uri.matches("/api/channels/[^/]+/previous") && "POST".equals(method)) {
-                return handleChannelPrevious(session, uri, responseHeaders);
-            }
-            
-            // Default 404
+        RequestRouter.Match match = router.match(method, uri);
+        if (match == null) {
             return newFixedLengthResponse(Response.Status.NOT_FOUND, "text/plain", "Not Found");
-            
+        }
+        if (match.getRoute() == null) {
+            return newFixedLengthResponse(Response.Status.METHOD_NOT_ALLOWED, "text/plain", "Method Not Allowed");
+        }
+        
+        long start = System.nanoTime();
+        try {
+            return match.getRoute().getHandler().handle(session, match.getParams());
         } catch (Exception e) {
-            Log.e(TAG, "Error handling request: " + e.getMessage(), e);
+            Log.e(TAG, "Error handling " + method + " " + uri + ": " + e.getMessage(), e);
             return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "application/json", 
                 "{\"error\":\"" + e.getMessage() + "\"}");
+        } finally {
+            match.getRoute().record(System.nanoTime() - start);
         }
     }
     
-    private Response handleWebInterface(Map<String, String> headers) {
+    private Response handleWebInterface(IHTTPSession session) {
         try {
-            AssetManager assetManager = context.getAssets();
-            InputStream inputStream = assetManager.open("web_interface.html");
-            
-            // Read the entire file
-            byte[] buffer = new byte[inputStream.available()];
-            inputStream.read(buffer);
-            inputStream.close();
-            
-            String html = new String(buffer, "UTF-8");
-            headers.put("Content-Type", "text/html; charset=utf-8");
-            
-            return newFixedLengthResponse(Response.Status.OK, "text/html", html);
+            StaticAsset asset = webInterfaceAsset;
+            if (asset == null) {
+                asset = StaticAsset.fromBytes("text/html; charset=utf-8",
+                    StaticAsset.readFully(context.getAssets().open("web_interface.html")));
+                webInterfaceAsset = asset;
+            }
+            return serveStaticAsset(session, asset);
         } catch (IOException e) {
             Log.e(TAG, "Error loading web interface: " + e.getMessage());
             String errorHtml = "<html><body><h1>Error</h1><p>Could not load web interface: " + e.getMessage() + "</p></body></html>";
@@ -433,88 +937,36 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleViewTypesDocumentation(Map<String, String> headers) {
+    // Serve a cached asset, honouring If-None-Match and Accept-Encoding
+    private Response serveStaticAsset(IHTTPSession session, StaticAsset asset) {
+        Map<String, String> requestHeaders = session.getHeaders();
+        Response response;
+        if (asset.etag.equals(requestHeaders.get("if-none-match"))) {
+            response = newFixedLengthResponse(Response.Status.NOT_MODIFIED, asset.mimeType, "");
+        } else {
+            String acceptEncoding = requestHeaders.get("accept-encoding");
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            byte[] body = gzip ? asset.gzipBody : asset.body;
+            response = newFixedLengthResponse(Response.Status.OK, asset.mimeType,
+                new ByteArrayInputStream(body), body.length);
+            if (gzip) {
+                response.addHeader("Content-Encoding", "gzip");
+            }
+        }
+        response.addHeader("ETag", asset.etag);
+        response.addHeader("Cache-Control", "no-cache"); // Always revalidate; 304s are cheap
+        response.addHeader("Vary", "Accept-Encoding");
+        return response;
+    }
+    
+    private Response handleViewTypesDocumentation(IHTTPSession session) {
         try {
-            AssetManager assetManager = context.getAssets();
-            StringBuilder html = new StringBuilder();
-            
-            html.append("<!DOCTYPE html>\n");
-            html.append("<html lang=\"en\">\n");
-            html.append("<head>\n");
-            html.append("    <meta charset=\"UTF-8\">\n");
-            html.append("    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n");
-            html.append("    <title>View Types Documentation</title>\n");
-            html.append("    <style>\n");
-            html.append("        * { margin: 0; padding: 0; box-sizing: border-box; }\n");
-            html.append("        body { font-family: -apple-system, BlinkMacSystemFont, 'Segoe UI', Roboto, sans-serif; background: #1a1a1a; color: #e0e0e0; padding: 20px; line-height: 1.6; }\n");
-            html.append("        .container { max-width: 1200px; margin: 0 auto; }\n");
-            html.append("        h1 { color: #4CAF50; margin-bottom: 30px; border-bottom: 2px solid #4CAF50; padding-bottom: 10px; }\n");
-            html.append("        .view-type { background: #2a2a2a; border-radius: 8px; padding: 20px; margin-bottom: 20px; border: 1px solid #3a3a3a; }\n");
-            html.append("        .view-type h2 { color: #4CAF50; margin-bottom: 10px; }\n");
-            html.append("        .view-type .description { color: #b0b0b0; margin-bottom: 15px; }\n");
-            html.append("        .view-type h3 { color: #888; margin-top: 20px; margin-bottom: 10px; font-size: 1em; }\n");
-            html.append("        pre { background: #1a1a1a; border: 1px solid #3a3a3a; border-radius: 4px; padding: 15px; overflow-x: auto; font-family: 'Courier New', monospace; font-size: 12px; }\n");
-            html.append("        code { color: #4CAF50; }\n");
-            html.append("        .field-desc { color: #aaa; font-size: 0.9em; margin-left: 20px; }\n");
-            html.append("        .back-link { display: inline-block; margin-bottom: 20px; color: #4CAF50; text-decoration: none; }\n");
-            html.append("        .back-link:hover { text-decoration: underline; }\n");
-            html.append("    </style>\n");
-            html.append("</head>\n");
-            html.append("<body>\n");
-            html.append("    <div class=\"container\">\n");
-            html.append("        <a href=\"/\" class=\"back-link\">← Back to View Manager</a>\n");
-            html.append("        <h1>📚 View Types Documentation</h1>\n");
-            
-            // List all JSON files in view_types directory
-            String[] viewTypeFiles = assetManager.list("view_types");
-            if (viewTypeFiles != null && viewTypeFiles.length > 0) {
-                java.util.Arrays.sort(viewTypeFiles);
-                
-                for (String filename : viewTypeFiles) {
-                    if (filename.endsWith(".json")) {
-                        try {
-                            InputStream jsonStream = assetManager.open("view_types/" + filename);
-                            byte[] jsonBuffer = new byte[jsonStream.available()];
-                            jsonStream.read(jsonBuffer);
-                            jsonStream.close();
-                            
-                            String jsonContent = new String(jsonBuffer, "UTF-8");
-                            JSONObject viewTypeDoc = new JSONObject(jsonContent);
-                            
-                            String type = viewTypeDoc.getString("type");
-                            String name = viewTypeDoc.getString("name");
-                            String description = viewTypeDoc.optString("description", "");
-                            JSONObject sample = viewTypeDoc.getJSONObject("sample");
-                            JSONObject fields = viewTypeDoc.optJSONObject("fields");
-                            
-                            html.append("        <div class=\"view-type\">\n");
-                            html.append("            <h2>").append(name).append(" (").append(type).append(")</h2>\n");
-                            html.append("            <div class=\"description\">").append(description).append("</div>\n");
-                            
-                            html.append("            <h3>Sample JSON:</h3>\n");
-                            html.append("            <pre><code>").append(sample.toString(2)).append("</code></pre>\n");
-                            
-                            if (fields != null) {
-                                html.append("            <h3>Field Descriptions:</h3>\n");
-                                html.append("            <pre><code>").append(fields.toString(2)).append("</code></pre>\n");
-                            }
-                            
-                            html.append("        </div>\n");
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error loading view type doc " + filename + ": " + e.getMessage());
-                        }
-                    }
-                }
-            } else {
-                html.append("        <p>No view type documentation found.</p>\n");
+            StaticAsset asset = viewTypesDocumentationAsset;
+            if (asset == null) {
+                asset = StaticAsset.fromString("text/html; charset=utf-8", buildViewTypesDocumentation());
+                viewTypesDocumentationAsset = asset;
             }
-            
-            html.append("    </div>\n");
-            html.append("</body>\n");
-            html.append("</html>\n");
-            
-            headers.put("Content-Type", "text/html; charset=utf-8");
-            return newFixedLengthResponse(Response.Status.OK, "text/html", html.toString());
+            return serveStaticAsset(session, asset);
         } catch (IOException e) {
             Log.e(TAG, "Error loading view types documentation: " + e.getMessage());
             String errorHtml = "<html><body><h1>Error</h1><p>Could not load documentation: " + e.getMessage() + "</p></body></html>";
@@ -526,33 +978,138 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleSSE(IHTTPSession session, String uri, Map<String, String> headers) {
-        String[] parts = uri.split("/");
-        String channel = parts.length > 2 ? parts[2] : "test";
+    private String buildViewTypesDocumentation() throws IOException {
+        StringBuilder html = new StringBuilder();
         
-        // Note: NanoHTTPD doesn't support true long-lived SSE connections
-        // For external clients, use the polling endpoint: GET /api/views/current?channel=<channel>
-        // The internal Android client uses InternalServerConnectionProvider which polls internally
+        html.append("<!DOCTYPE html>\n");
+        html.append("<html lang=\"en\">\n");
+        html.append("<head>\n");
+        html.append("    <meta charset=\"UTF-8\">\n");
+        html.append("    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n");
+        html.append("    <title>View Types Documentation</title>\n");
+        html.append("    <style>\n");
+        html.append("        * { margin: 0; padding: 0; box-sizing: border-box; }\n");
+        html.append("        body { font-family: -apple-system, BlinkMacSystemFont, 'Segoe UI', Roboto, sans-serif; background: #1a1a1a; color: #e0e0e0; padding: 20px; line-height: 1.6; }\n");
+        html.append("        .container { max-width: 1200px; margin: 0 auto; }\n");
+        html.append("        h1 { color: #4CAF50; margin-bottom: 30px; border-bottom: 2px solid #4CAF50; padding-bottom: 10px; }\n");
+        html.append("        .view-type { background: #2a2a2a; border-radius: 8px; padding: 20px; margin-bottom: 20px; border: 1px solid #3a3a3a; }\n");
+        html.append("        .view-type h2 { color: #4CAF50; margin-bottom: 10px; }\n");
+        html.append("        .view-type .description { color: #b0b0b0; margin-bottom: 15px; }\n");
+        html.append("        .view-type h3 { color: #888; margin-top: 20px; margin-bottom: 10px; font-size: 1em; }\n");
+        html.append("        pre { background: #1a1a1a; border: 1px solid #3a3a3a; border-radius: 4px; padding: 15px; overflow-x: auto; font-family: 'Courier New', monospace; font-size: 12px; }\n");
+        html.append("        code { color: #4CAF50; }\n");
+        html.append("        .field-desc { color: #aaa; font-size: 0.9em; margin-left: 20px; }\n");
+        html.append("        .back-link { display: inline-block; margin-bottom: 20px; color: #4CAF50; text-decoration: none; }\n");
+        html.append("        .back-link:hover { text-decoration: underline; }\n");
+        html.append("    </style>\n");
+        html.append("</head>\n");
+        html.append("<body>\n");
+        html.append("    <div class=\"container\">\n");
+        html.append("        <a href=\"/\" class=\"back-link\">← Back to View Manager</a>\n");
+        html.append("        <h1>📚 View Types Documentation</h1>\n");
+        
+        // View type docs, sorted by filename
+        List<JSONObject> viewTypeDocs = loadViewTypeDocs();
+        if (!viewTypeDocs.isEmpty()) {
+            for (JSONObject viewTypeDoc : viewTypeDocs) {
+                try {
+                    String type = viewTypeDoc.getString("type");
+                    String name = viewTypeDoc.getString("name");
+                    String description = viewTypeDoc.optString("description", "");
+                    JSONObject sample = viewTypeDoc.getJSONObject("sample");
+                    JSONObject fields = viewTypeDoc.optJSONObject("fields");
+                    
+                    html.append("        <div class=\"view-type\">\n");
+                    html.append("            <h2>").append(name).append(" (").append(type).append(")</h2>\n");
+                    html.append("            <div class=\"description\">").append(description).append("</div>\n");
+                    
+                    html.append("            <h3>Sample JSON:</h3>\n");
+                    html.append("            <pre><code>").append(sample.toString(2)).append("</code></pre>\n");
+                    
+                    if (fields != null) {
+                        html.append("            <h3>Field Descriptions:</h3>\n");
+                        html.append("            <pre><code>").append(fields.toString(2)).append("</code></pre>\n");
+                    }
+                    
+                    html.append("        </div>\n");
+                } catch (Exception e) {
+                    Log.e(TAG, "Error rendering view type doc " + viewTypeDoc.optString("type") + ": " + e.getMessage());
+                }
+            }
+        } else {
+            html.append("        <p>No view type documentation found.</p>\n");
+        }
+        
+        html.append("    </div>\n");
+        html.append("</body>\n");
+        html.append("</html>\n");
+        return html.toString();
+    }
+    
+    // Parse every view_types/*.json asset, sorted by filename
+    private List<JSONObject> loadViewTypeDocs() throws IOException {
+        List<JSONObject> docs = new ArrayList<>();
+        AssetManager assetManager = context.getAssets();
+        String[] viewTypeFiles = assetManager.list("view_types");
+        if (viewTypeFiles == null) {
+            return docs;
+        }
+        java.util.Arrays.sort(viewTypeFiles);
+        for (String filename : viewTypeFiles) {
+            if (filename.endsWith(".json")) {
+                try {
+                    byte[] jsonBuffer = StaticAsset.readFully(assetManager.open("view_types/" + filename));
+                    docs.add(new JSONObject(new String(jsonBuffer, "UTF-8")));
+                } catch (Exception e) {
+                    Log.e(TAG, "Error loading view type doc " + filename + ": " + e.getMessage());
+                }
+            }
+        }
+        return docs;
+    }
+    
+    private Response handleSSE(IHTTPSession session, String channel) {
+        if (!channelConfig.hasChannel(channel)) {
+            return channelNotFound();
+        }
         
         try {
-            // Return a helpful message pointing to the polling endpoint
-            JSONObject response = new JSONObject();
-            response.put("error", "NanoHTTPD doesn't support long-lived SSE connections");
-            response.put("suggestion", "Use polling endpoint instead");
-            response.put("polling_url", "/api/views/current?channel=" + channel);
-            response.put("polling_interval_ms", 1000);
+            SSEClient client = new SSEClient(channel, "sse-" + sseClientCounter.incrementAndGet());
+            String lastEventId = session.getHeaders().get("last-event-id");
             
-            // Also return current view for convenience
-            JSONObject currentView = viewManager.getCurrentView(channel);
-            if (currentView != null) {
-                response.put("current_view", currentView);
+            // Under the log's lock no broadcast can slip in between the first frames
+            // and registering, so the client misses nothing and sees nothing twice
+            SseEventLog log = getEventLog(channel);
+            synchronized (log) {
+                List<byte[]> missed = log.eventsAfter(lastEventId);
+                if (missed != null) {
+                    // Reconnect: replay only the events broadcast since the client's last one
+                    for (byte[] frame : missed) {
+                        client.send(frame);
+                    }
+                    if (missed.isEmpty()) {
+                        client.send(SSE_KEEP_ALIVE_FRAME);
+                    }
+                    resumedSSEClients.incrementAndGet();
+                    replayedSSEEvents.addAndGet(missed.size());
+                } else {
+                    // Queue the initial view before registering so it is always the first frame
+                    ViewEntry currentView = viewManager.getCurrentViewEntry(channel);
+                    if (currentView != null) {
+                        client.send(log.withLastId(currentView.getInitialViewFrame()));
+                    } else {
+                        client.send(SSE_KEEP_ALIVE_FRAME);
+                    }
+                }
+                registerSSEClient(client);
             }
             
-            Map<String, String> responseHeaders = new HashMap<>();
-            responseHeaders.put("Content-Type", "application/json");
-            responseHeaders.put("Cache-Control", "no-cache");
-            
-            return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
+            // Chunked response keeps the connection open; this worker thread streams
+            // frames from the client's queue until the display disconnects
+            Response response = newChunkedResponse(Response.Status.OK, "text/event-stream", client);
+            response.addHeader("Cache-Control", "no-cache");
+            response.addHeader("Access-Control-Allow-Origin", "*");
+            return response;
         } catch (Exception e) {
             Log.e(TAG, "Error in SSE endpoint: " + e.getMessage(), e);
             return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "text/plain", 
@@ -560,14 +1117,104 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleGetChannels(Map<String, String> headers) {
+    private Response handleWebSocket(IHTTPSession session, String channel) {
+        Map<String, String> headers = session.getHeaders();
+        String key = headers.get(NanoWSD.HEADER_WEBSOCKET_KEY);
+        String connection = headers.get(NanoWSD.HEADER_CONNECTION);
+        if (!NanoWSD.HEADER_UPGRADE_VALUE.equalsIgnoreCase(headers.get(NanoWSD.HEADER_UPGRADE))
+                || connection == null || !connection.toLowerCase(Locale.US).contains("upgrade") || key == null) {
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                "{\"error\":\"WebSocket upgrade required\"}");
+        }
+        if (!NanoWSD.HEADER_WEBSOCKET_VERSION_VALUE.equals(headers.get(NanoWSD.HEADER_WEBSOCKET_VERSION))) {
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                "{\"error\":\"Unsupported WebSocket version\"}");
+        }
+        if (!channelConfig.hasChannel(channel)) {
+            return channelNotFound();
+        }
+        
+        try {
+            // The handshake response runs the connection: once sent, this worker thread
+            // reads the WebSocket until it closes
+            WSClient client = new WSClient(session, channel, "ws-" + wsClientCounter.incrementAndGet());
+            Response handshake = client.getHandshakeResponse();
+            handshake.addHeader(NanoWSD.HEADER_WEBSOCKET_ACCEPT, NanoWSD.makeAcceptKey(key));
+            return handshake;
+        } catch (Exception e) {
+            Log.e(TAG, "Error in WebSocket endpoint: " + e.getMessage(), e);
+            return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "application/json", 
+                "{\"error\":\"" + e.getMessage() + "\"}");
+        }
+    }
+    
+    // Commands from a WebSocket display: {"type": "tap", "quadrant": ...}, {"type": "next"}
+    // or {"type": "previous"}. Their effect arrives as the usual view_change broadcast.
+    private void handleWebSocketCommand(WSClient client, String text) {
+        String type = null;
         try {
-            // Return a simple channels response with "test" channel
+            JSONObject command = new JSONObject(text);
+            type = command.optString("type");
+            if ("tap".equals(type)) {
+                applyTap(client.channel, command.getString("quadrant"));
+            } else if ("next".equals(type)) {
+                viewManager.nextView(client.channel);
+            } else if ("previous".equals(type)) {
+                viewManager.previousView(client.channel);
+            } else {
+                throw new IllegalArgumentException("Unknown command: " + type);
+            }
+            wsCommands.incrementAndGet();
+        } catch (Exception e) {
+            Log.e(TAG, "Error handling WebSocket command " + type + ": " + e.getMessage());
+            try {
+                JSONObject error = new JSONObject();
+                error.put("type", "command_error");
+                error.put("command", type != null ? type : JSONObject.NULL);
+                error.put("error", String.valueOf(e.getMessage()));
+                client.enqueue(error.toString().getBytes("UTF-8"));
+            } catch (Exception ignored) {
+                // Nothing more to tell the display
+            }
+        }
+    }
+    
+    private Response handleGetStats() {
+        try {
+            JSONObject response = new JSONObject();
+            response.put("sse", getBroadcastStats());
+            response.put("routes", router.getStats());
+            response.put("workers", workerPool.getStats());
+            response.put("rotation", viewManager.getRotationStats());
+            // This process's own display connections
+            response.put("reconnect", ReconnectController.getInstance().getStats());
+            response.put("httpClient", HttpClient.getInstance(context).getStats());
+            response.put("decode", ContentManager.getDecodeStats());
+            return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
+        } catch (Exception e) {
+            Log.e(TAG, "Error getting stats: " + e.getMessage());
+            return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "application/json", 
+                "{\"error\":\"" + e.getMessage() + "\"}");
+        }
+    }
+    
+    private Response handleGetChannels() {
+        try {
+            // Configured channels plus any still showing a view
+            Set<String> names = new TreeSet<>(channelConfig.getAllChannels());
+            names.addAll(viewManager.getActiveChannels());
+            
             JSONObject response = new JSONObject();
             JSONObject channels = new JSONObject();
-            JSONObject testChannel = new JSONObject();
-            testChannel.put("name", "test");
-            channels.put("test", testChannel);
+            for (String name : names) {
+                JSONObject channel = new JSONObject();
+                channel.put("name", name);
+                channel.put("views", channelConfig.getChannelViews(name));
+                JSONObject currentView = viewManager.getCurrentView(name);
+                channel.put("currentView", currentView != null ? currentView.optString("id", null) : JSONObject.NULL);
+                channel.put("clients", getChannelClientCount(name));
+                channels.put(name, channel);
+            }
             response.put("channels", channels);
             return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
         } catch (Exception e) {
@@ -577,9 +1224,74 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleGetChannelConfig(String uri, Map<String, String> headers) {
-        String[] parts = uri.split("/");
-        String channel = parts.length > 3 ? parts[3] : "test";
+    // Body: {"name", "views": [id ...], "quadrants": {...}}; views and quadrants are optional
+    private Response handleCreateChannel(IHTTPSession session) {
+        try {
+            String body = readRequestBody(session);
+            
+            if (body == null || body.trim().isEmpty()) {
+                return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                    "{\"error\":\"Request body is required\"}");
+            }
+            
+            JSONObject request = new JSONObject(body);
+            String name = request.optString("name", "");
+            // Channel names appear in URL paths (/sse/{channel}, /api/channels/{channel})
+            if (!name.matches("[A-Za-z0-9_-]+")) {
+                return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                    "{\"error\":\"Channel name must be letters, digits, '-' or '_'\"}");
+            }
+            
+            JSONObject config = new JSONObject();
+            config.put("views", request.has("views") ? request.getJSONArray("views") : new JSONArray());
+            JSONObject quadrants = request.has("quadrants") ? request.getJSONObject("quadrants") : new JSONObject();
+            // MIDDLE_CENTER is always handled specially by the client
+            quadrants.remove("MIDDLE_CENTER");
+            config.put("quadrants", quadrants);
+            config.put("rotation", new JSONObject());
+            
+            if (!channelConfig.createChannel(name, config)) {
+                return newFixedLengthResponse(Response.Status.CONFLICT, "application/json", 
+                    "{\"error\":\"Channel already exists\"}");
+            }
+            
+            JSONObject response = new JSONObject();
+            response.put("success", true);
+            response.put("name", name);
+            return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
+        } catch (org.json.JSONException e) {
+            Log.e(TAG, "Error parsing JSON in POST channel: " + e.getMessage());
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                "{\"error\":\"Invalid JSON: " + e.getMessage() + "\"}");
+        } catch (Exception e) {
+            Log.e(TAG, "Error creating channel: " + e.getMessage(), e);
+            String errorMsg = e.getMessage() != null ? e.getMessage() : "Unknown error";
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                "{\"error\":\"" + errorMsg + "\"}");
+        }
+    }
+    
+    private Response handleDeleteChannel(String channel) {
+        if (InternalChannelConfig.DEFAULT_CHANNEL.equals(channel)) {
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                "{\"error\":\"The default channel cannot be deleted\"}");
+        }
+        if (!channelConfig.deleteChannel(channel)) {
+            return channelNotFound();
+        }
+        // Connected displays stay subscribed and see the channel again if it is recreated
+        viewManager.removeChannel(channel);
+        return newFixedLengthResponse(Response.Status.OK, "application/json", "{\"success\":true}");
+    }
+    
+    // Only POST /api/channels creates channels; every other route answers 404 for an
+    // unknown name instead of setting up state for it
+    private Response channelNotFound() {
+        return newFixedLengthResponse(Response.Status.NOT_FOUND, "application/json", 
+            "{\"error\":\"Channel not found\"}");
+    }
+    
+    private Response handleGetChannelConfig(String channel) {
         
         JSONObject config = channelConfig.getChannelConfig(channel);
         
@@ -598,52 +1310,42 @@ public class InternalHttpServer extends NanoHTTPD {
         return newFixedLengthResponse(Response.Status.OK, "application/json", config.toString());
     }
     
-    private Response handleGetViews(Map<String, String> headers) {
-        JSONArray views = viewManager.getAllViews();
-        return newFixedLengthResponse(Response.Status.OK, "application/json", views.toString());
+    private Response handleGetViews() {
+        return newJsonResponse(Response.Status.OK, viewManager.getAllViewsJson());
+    }
+    
+    // Serve pre-serialized JSON bytes as-is
+    private static Response newJsonResponse(Response.Status status, byte[] body) {
+        return newFixedLengthResponse(status, "application/json", new ByteArrayInputStream(body), body.length);
     }
     
-    private Response handleGetViewTypes(Map<String, String> headers) {
+    private Response handleGetViewTypes(IHTTPSession session) {
         try {
-            JSONArray viewTypes = new JSONArray();
-            AssetManager assetManager = context.getAssets();
-            String[] viewTypeFiles = assetManager.list("view_types");
-            
-            if (viewTypeFiles != null && viewTypeFiles.length > 0) {
-                java.util.Arrays.sort(viewTypeFiles);
-                
-                for (String filename : viewTypeFiles) {
-                    if (filename.endsWith(".json")) {
-                        try {
-                            InputStream jsonStream = assetManager.open("view_types/" + filename);
-                            byte[] jsonBuffer = new byte[jsonStream.available()];
-                            jsonStream.read(jsonBuffer);
-                            jsonStream.close();
-                            
-                            String jsonContent = new String(jsonBuffer, "UTF-8");
-                            JSONObject viewTypeDoc = new JSONObject(jsonContent);
-                            
-                            // Create a simplified version for the API
-                            JSONObject viewType = new JSONObject();
-                            viewType.put("type", viewTypeDoc.getString("type"));
-                            viewType.put("name", viewTypeDoc.getString("name"));
-                            viewType.put("description", viewTypeDoc.optString("description", ""));
-                            if (viewTypeDoc.has("sample")) {
-                                viewType.put("sample", viewTypeDoc.getJSONObject("sample"));
-                            }
-                            if (viewTypeDoc.has("fields")) {
-                                viewType.put("fields", viewTypeDoc.getJSONObject("fields"));
-                            }
-                            
-                            viewTypes.put(viewType);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error loading view type " + filename + ": " + e.getMessage());
+            StaticAsset asset = viewTypesApiAsset;
+            if (asset == null) {
+                JSONArray viewTypes = new JSONArray();
+                for (JSONObject viewTypeDoc : loadViewTypeDocs()) {
+                    try {
+                        // Create a simplified version for the API
+                        JSONObject viewType = new JSONObject();
+                        viewType.put("type", viewTypeDoc.getString("type"));
+                        viewType.put("name", viewTypeDoc.getString("name"));
+                        viewType.put("description", viewTypeDoc.optString("description", ""));
+                        if (viewTypeDoc.has("sample")) {
+                            viewType.put("sample", viewTypeDoc.getJSONObject("sample"));
+                        }
+                        if (viewTypeDoc.has("fields")) {
+                            viewType.put("fields", viewTypeDoc.getJSONObject("fields"));
                         }
+                        viewTypes.put(viewType);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error loading view type " + viewTypeDoc.optString("type") + ": " + e.getMessage());
                     }
                 }
+                asset = StaticAsset.fromString("application/json", viewTypes.toString());
+                viewTypesApiAsset = asset;
             }
-            
-            return newFixedLengthResponse(Response.Status.OK, "application/json", viewTypes.toString());
+            return serveStaticAsset(session, asset);
         } catch (IOException e) {
             Log.e(TAG, "Error listing view types: " + e.getMessage());
             return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "application/json",
@@ -655,33 +1357,68 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleGetCurrentView(IHTTPSession session, String uri, Map<String, String> headers) {
+    private Response handleGetCurrentView(IHTTPSession session) {
         try {
-            // Parse channel from query string or default to "test"
-            String channel = "test";
-            String query = session.getQueryParameterString();
-            if (query != null && query.contains("channel=")) {
-                String[] params = query.split("&");
-                for (String param : params) {
-                    if (param.startsWith("channel=")) {
-                        channel = param.substring("channel=".length());
-                        break;
-                    }
+            // Parse channel from query string or fall back to the default channel
+            String channel = getQueryParameter(session, "channel");
+            if (channel == null) {
+                channel = InternalChannelConfig.DEFAULT_CHANNEL;
+            } else if (!channelConfig.hasChannel(channel)) {
+                return channelNotFound();
+            }
+            
+            // Conditional GET: the ETag identifies the channel's current view version
+            long version = viewManager.getChannelVersion(channel);
+            String ifNoneMatch = session.getHeaders().get("if-none-match");
+            boolean clientUpToDate = etagForVersion(version).equals(ifNoneMatch);
+            
+            // Long-poll: park until the current view changes or the wait expires.
+            // A client holding a stale ETag is answered immediately.
+            String waitParam = getQueryParameter(session, "wait");
+            if (waitParam != null && (ifNoneMatch == null || clientUpToDate)) {
+                long waitMs = 0;
+                try {
+                    waitMs = Math.min(Long.parseLong(waitParam), MAX_LONG_POLL_WAIT);
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "Ignoring invalid wait parameter: " + waitParam);
+                }
+                if (waitMs > 0 && !workerPool.isStreamingThread()) {
+                    // Came after other requests on a keep-alive connection, so this is an
+                    // API worker: answer now, and the retry on a new connection can wait
+                    waitMs = 0;
+                }
+                if (waitMs > 0) {
+                    version = viewManager.awaitChannelChange(channel, version, waitMs);
+                    clientUpToDate = etagForVersion(version).equals(ifNoneMatch);
                 }
             }
             
-            JSONObject currentView = viewManager.getCurrentView(channel);
-            JSONObject response = new JSONObject();
-            response.put("type", "view_change");
-            if (currentView != null) {
-                response.put("view", currentView);
-            } else {
-                response.put("view", JSONObject.NULL);
+            String etag = etagForVersion(version);
+            if (clientUpToDate) {
+                Response notModified = newFixedLengthResponse(Response.Status.NOT_MODIFIED, "application/json", "");
+                notModified.addHeader("ETag", etag);
+                notModified.addHeader("Cache-Control", "no-cache");
+                closeAfterLongPoll(notModified, waitParam);
+                return notModified;
             }
-            response.put("channel", channel);
-            response.put("timestamp", System.currentTimeMillis());
             
-            return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
+            // Splice the view's cached bytes into the envelope instead of reserializing it
+            ViewEntry currentView = viewManager.getCurrentViewEntry(channel);
+            byte[] body = ViewEntry.concat(
+                CURRENT_VIEW_PREFIX,
+                currentView != null ? currentView.getJson() : JSON_NULL,
+                ViewEntry.utf8(",\"channel\":" + JSONObject.quote(channel)
+                    + ",\"timestamp\":" + System.currentTimeMillis() + "}"));
+            
+            Response ok = newJsonResponse(Response.Status.OK, body);
+            ok.addHeader("ETag", etag);
+            ok.addHeader("Cache-Control", "no-cache");
+            closeAfterLongPoll(ok, waitParam);
+            return ok;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return newFixedLengthResponse(Response.Status.SERVICE_UNAVAILABLE, "application/json",
+                "{\"error\":\"Interrupted\"}");
         } catch (Exception e) {
             Log.e(TAG, "Error getting current view: " + e.getMessage(), e);
             return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "application/json",
@@ -689,7 +1426,64 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handlePostView(IHTTPSession session, Map<String, String> headers) {
+    // The worker pool classifies a connection by its first request only. Closing after a
+    // long-poll keeps the next poll from landing on an API worker and other requests from
+    // holding a streaming one.
+    private static void closeAfterLongPoll(Response response, String waitParam) {
+        if (waitParam != null) {
+            response.addHeader("Connection", "close");
+        }
+    }
+    
+    private String etagForVersion(long version) {
+        // Server epoch prefix keeps ETags from matching across restarts, when versions restart at 0
+        return "\"" + serverEpoch + "-" + version + "\"";
+    }
+    
+    private static String getQueryParameter(IHTTPSession session, String name) {
+        String query = session.getQueryParameterString();
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+        String prefix = name + "=";
+        for (String param : query.split("&")) {
+            if (param.startsWith(prefix)) {
+                return decodePercent(param.substring(prefix.length()));
+            }
+        }
+        return null;
+    }
+    
+    // Read a PUT/PATCH body. NanoHTTPD's parseBody only exposes POST bodies as "postData";
+    // PUT bodies go to a temp file and PATCH bodies are not read at all.
+    private static String readRequestBody(IHTTPSession session) throws IOException {
+        String lengthHeader = session.getHeaders().get("content-length");
+        if (lengthHeader == null) {
+            return null;
+        }
+        int length;
+        try {
+            length = Integer.parseInt(lengthHeader.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid Content-Length");
+        }
+        if (length < 0 || length > MAX_REQUEST_BODY) {
+            throw new IOException("Request body too large");
+        }
+        byte[] body = new byte[length];
+        InputStream inputStream = session.getInputStream();
+        int offset = 0;
+        while (offset < length) {
+            int read = inputStream.read(body, offset, length - offset);
+            if (read == -1) {
+                throw new IOException("Request body truncated");
+            }
+            offset += read;
+        }
+        return new String(body, "UTF-8");
+    }
+    
+    private Response handlePostView(IHTTPSession session) {
         try {
             Map<String, String> files = new HashMap<>();
             session.parseBody(files);
@@ -719,21 +1513,44 @@ public class InternalHttpServer extends NanoHTTPD {
                     "{\"error\":\"View data is required (must include metadata and data fields)\"}");
             }
             
+            // Channels to list the view in: "channel", "channels" or the default channel
+            List<String> targetChannels = new ArrayList<>();
+            JSONArray channelsArray = request.optJSONArray("channels");
+            if (channelsArray != null) {
+                for (int i = 0; i < channelsArray.length(); i++) {
+                    targetChannels.add(channelsArray.getString(i));
+                }
+            } else {
+                targetChannels.add(request.optString("channel", InternalChannelConfig.DEFAULT_CHANNEL));
+            }
+            for (String channel : targetChannels) {
+                if (!channelConfig.hasChannel(channel)) {
+                    return newFixedLengthResponse(Response.Status.NOT_FOUND, "application/json", 
+                        "{\"error\":\"Channel not found: " + channel + "\"}");
+                }
+            }
+            
             viewManager.addView(id, view);
             
-            // Automatically add view to default channel if not already in any channel
-            JSONArray channelViews = channelConfig.getChannelViews("test");
-            boolean alreadyInChannel = false;
-            for (int i = 0; i < channelViews.length(); i++) {
-                if (id.equals(channelViews.optString(i, null))) {
-                    alreadyInChannel = true;
-                    break;
+            // Automatically add view to its channels if not already listed there
+            for (String channel : targetChannels) {
+                JSONArray channelViews = channelConfig.getChannelViews(channel);
+                boolean alreadyInChannel = false;
+                for (int i = 0; i < channelViews.length(); i++) {
+                    if (id.equals(channelViews.optString(i, null))) {
+                        alreadyInChannel = true;
+                        break;
+                    }
+                }
+                if (!alreadyInChannel) {
+                    channelViews.put(id);
+                    channelConfig.setChannelViews(channel, channelViews);
+                    Log.d(TAG, "Automatically added view " + id + " to channel '" + channel + "'");
+                }
+                // A channel that shows nothing yet starts on the new view
+                if (viewManager.getCurrentViewEntry(channel) == null) {
+                    viewManager.setCurrentView(id, channel);
                 }
-            }
-            if (!alreadyInChannel) {
-                channelViews.put(id);
-                channelConfig.setChannelViews("test", channelViews);
-                Log.d(TAG, "Automatically added view " + id + " to default channel 'test'");
             }
             
             JSONObject response = new JSONObject();
@@ -751,15 +1568,101 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handlePutView(IHTTPSession session, String uri, Map<String, String> headers) {
+    // Body: {"upsert": [{"id", "view"} ...], "delete": [id ...], "channels": {channel: [id ...]}}
+    private Response handleBatchViews(IHTTPSession session) {
         try {
-            String[] parts = uri.split("/");
-            String id = parts.length > 3 ? parts[3] : null;
-            
             Map<String, String> files = new HashMap<>();
             session.parseBody(files);
             String body = files.get("postData");
             
+            if (body == null || body.isEmpty()) {
+                return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                    "{\"error\":\"Request body is required\"}");
+            }
+            
+            JSONObject request = new JSONObject(body);
+            
+            Map<String, JSONObject> upserts = new LinkedHashMap<>();
+            JSONArray upsertArray = request.optJSONArray("upsert");
+            for (int i = 0; upsertArray != null && i < upsertArray.length(); i++) {
+                JSONObject item = upsertArray.getJSONObject(i);
+                String id = item.getString("id");
+                JSONObject view = item.optJSONObject("view");
+                if (view == null && item.has("metadata") && item.has("data")) {
+                    view = item;
+                }
+                if (view == null) {
+                    return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                        "{\"error\":\"View data is required for " + id + "\"}");
+                }
+                upserts.put(id, view);
+            }
+            
+            Set<String> deletes = new LinkedHashSet<>();
+            JSONArray deleteArray = request.optJSONArray("delete");
+            for (int i = 0; deleteArray != null && i < deleteArray.length(); i++) {
+                deletes.add(deleteArray.getString(i));
+            }
+            
+            Map<String, JSONArray> channelViews = new HashMap<>();
+            JSONObject channels = request.optJSONObject("channels");
+            if (channels != null) {
+                Iterator<String> keys = channels.keys();
+                while (keys.hasNext()) {
+                    String channel = keys.next();
+                    // Channels are created with POST /api/channels, not by listing views in them
+                    if (!channelConfig.hasChannel(channel)) {
+                        return newFixedLengthResponse(Response.Status.NOT_FOUND, "application/json", 
+                            "{\"error\":\"Channel not found: " + channel + "\"}");
+                    }
+                    channelViews.put(channel, channels.getJSONArray(channel));
+                }
+            } else if (!upserts.isEmpty()) {
+                // Like POST /api/views, new views join the default channel
+                JSONArray defaultViews = channelConfig.getChannelViews(InternalChannelConfig.DEFAULT_CHANNEL);
+                Set<String> listed = new HashSet<>();
+                for (int i = 0; i < defaultViews.length(); i++) {
+                    listed.add(defaultViews.optString(i, null));
+                }
+                boolean changed = false;
+                for (String id : upserts.keySet()) {
+                    if (listed.add(id)) {
+                        defaultViews.put(id);
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    channelViews.put(InternalChannelConfig.DEFAULT_CHANNEL, defaultViews);
+                }
+            }
+            
+            viewManager.applyBatch(upserts, deletes, channelViews);
+            
+            JSONObject response = new JSONObject();
+            response.put("success", true);
+            response.put("upserted", upserts.size());
+            response.put("deleted", deletes.size());
+            return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
+        } catch (org.json.JSONException e) {
+            Log.e(TAG, "Error parsing JSON in batch views: " + e.getMessage());
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                "{\"error\":\"Invalid JSON: " + e.getMessage() + "\"}");
+        } catch (Exception e) {
+            Log.e(TAG, "Error applying batch: " + e.getMessage(), e);
+            String errorMsg = e.getMessage() != null ? e.getMessage() : "Unknown error";
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
+                "{\"error\":\"" + errorMsg + "\"}");
+        }
+    }
+    
+    private Response handlePutView(IHTTPSession session, String id) {
+        try {
+            String body = readRequestBody(session);
+            if (body == null || body.isEmpty()) {
+                return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json",
+                    "{\"error\":\"Request body is required\"}");
+            }
+            
             JSONObject request = new JSONObject(body);
             JSONObject view = request.optJSONObject("view");
             if (view == null) {
@@ -782,11 +1685,36 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleDeleteView(String uri, Map<String, String> headers) {
+    private Response handlePatchView(IHTTPSession session, String id) {
         try {
-            String[] parts = uri.split("/");
-            String id = parts.length > 3 ? parts[3] : null;
+            String body = readRequestBody(session);
+            if (body == null || body.isEmpty()) {
+                return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json",
+                    "{\"error\":\"Request body is required\"}");
+            }
             
+            // RFC 7386: the body is the patch document itself
+            JSONObject patch = new JSONObject(body);
+            if (!viewManager.patchView(id, patch)) {
+                return newFixedLengthResponse(Response.Status.NOT_FOUND, "application/json",
+                    "{\"error\":\"View not found\"}");
+            }
+            JSONObject response = new JSONObject();
+            response.put("success", true);
+            return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
+        } catch (org.json.JSONException e) {
+            Log.e(TAG, "Invalid merge patch for view " + id + ": " + e.getMessage());
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json",
+                "{\"error\":\"Invalid merge patch: " + e.getMessage() + "\"}");
+        } catch (Exception e) {
+            Log.e(TAG, "Error patching view: " + e.getMessage());
+            return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json",
+                "{\"error\":\"" + e.getMessage() + "\"}");
+        }
+    }
+    
+    private Response handleDeleteView(String id) {
+        try {
             viewManager.removeView(id);
             JSONObject response = new JSONObject();
             response.put("success", true);
@@ -798,19 +1726,14 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleSetViewEnabled(IHTTPSession session, String uri, Map<String, String> headers) {
+    private Response handleSetViewEnabled(IHTTPSession session, String id) {
         try {
-            String[] parts = uri.split("/");
-            String id = parts.length > 3 ? parts[3] : null;
-            
             if (id == null) {
                 return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json", 
                     "{\"error\":\"View ID is required\"}");
             }
             
-            Map<String, String> files = new HashMap<>();
-            session.parseBody(files);
-            String body = files.get("postData");
+            String body = readRequestBody(session);
             
             if (body == null || body.trim().isEmpty()) {
                 return newFixedLengthResponse(Response.Status.BAD_REQUEST, "application/json",
@@ -836,14 +1759,12 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handlePutChannelConfig(IHTTPSession session, String uri, Map<String, String> headers) {
+    private Response handlePutChannelConfig(IHTTPSession session, String channel) {
+        if (!channelConfig.hasChannel(channel)) {
+            return channelNotFound();
+        }
         try {
-            String[] parts = uri.split("/");
-            String channel = parts.length > 3 ? parts[3] : "test";
-            
-            Map<String, String> files = new HashMap<>();
-            session.parseBody(files);
-            String body = files.get("postData");
+            String body = readRequestBody(session);
             
             if (body == null || body.isEmpty()) {
                 Log.e(TAG, "Empty request body for PUT channel-config");
@@ -880,44 +1801,22 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleChannelTap(IHTTPSession session, String uri, Map<String, String> headers) {
+    private Response handleChannelTap(IHTTPSession session, String channel) {
+        if (!channelConfig.hasChannel(channel)) {
+            return channelNotFound();
+        }
         try {
-            String[] parts = uri.split("/");
-            String channel = parts.length > 3 ? parts[3] : "test";
-            
             Map<String, String> files = new HashMap<>();
             session.parseBody(files);
             String body = files.get("postData");
             JSONObject request = new JSONObject(body);
             String quadrant = request.getString("quadrant");
             
-            // MIDDLE_CENTER is always handled specially by the client for pause/resume
-            // Don't process it on the server side
-            if ("MIDDLE_CENTER".equals(quadrant)) {
-                JSONObject response = new JSONObject();
-                response.put("success", true);
-                response.put("message", "MIDDLE_CENTER is handled by client for pause/resume");
-                return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
-            }
-            
-            JSONObject config = channelConfig.getChannelConfig(channel);
-            JSONObject quadrants = config.optJSONObject("quadrants");
-            if (quadrants != null && quadrants.has(quadrant)) {
-                String targetViewId = quadrants.getString(quadrant);
-                if ("NEXT".equals(targetViewId)) {
-                    viewManager.nextView(channel);
-                } else if ("PREVIOUS".equals(targetViewId)) {
-                    viewManager.previousView(channel);
-                } else {
-                    viewManager.setCurrentView(targetViewId, channel);
-                }
-            } else {
-                // Default to next
-                viewManager.nextView(channel);
-            }
-            
             JSONObject response = new JSONObject();
             response.put("success", true);
+            if (!applyTap(channel, quadrant)) {
+                response.put("message", "MIDDLE_CENTER is handled by client for pause/resume");
+            }
             return newFixedLengthResponse(Response.Status.OK, "application/json", response.toString());
         } catch (Exception e) {
             Log.e(TAG, "Error handling tap: " + e.getMessage());
@@ -926,11 +1825,36 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleChannelNext(IHTTPSession session, String uri, Map<String, String> headers) {
+    // Act on a tap in a quadrant per the channel's mapping; false for MIDDLE_CENTER, which
+    // the client handles itself (pause/resume)
+    private boolean applyTap(String channel, String quadrant) throws Exception {
+        if ("MIDDLE_CENTER".equals(quadrant)) {
+            return false;
+        }
+        
+        JSONObject config = channelConfig.getChannelConfig(channel);
+        JSONObject quadrants = config.optJSONObject("quadrants");
+        if (quadrants != null && quadrants.has(quadrant)) {
+            String targetViewId = quadrants.getString(quadrant);
+            if ("NEXT".equals(targetViewId)) {
+                viewManager.nextView(channel);
+            } else if ("PREVIOUS".equals(targetViewId)) {
+                viewManager.previousView(channel);
+            } else {
+                viewManager.setCurrentView(targetViewId, channel);
+            }
+        } else {
+            // Default to next
+            viewManager.nextView(channel);
+        }
+        return true;
+    }
+    
+    private Response handleChannelNext(IHTTPSession session, String channel) {
+        if (!channelConfig.hasChannel(channel)) {
+            return channelNotFound();
+        }
         try {
-            String[] parts = uri.split("/");
-            String channel = parts.length > 3 ? parts[3] : "test";
-            
             viewManager.nextView(channel);
             JSONObject response = new JSONObject();
             response.put("success", true);
@@ -942,11 +1866,11 @@ public class InternalHttpServer extends NanoHTTPD {
         }
     }
     
-    private Response handleChannelPrevious(IHTTPSession session, String uri, Map<String, String> headers) {
+    private Response handleChannelPrevious(IHTTPSession session, String channel) {
+        if (!channelConfig.hasChannel(channel)) {
+            return channelNotFound();
+        }
         try {
-            String[] parts = uri.split("/");
-            String channel = parts.length > 3 ? parts[3] : "test";
-            
             viewManager.previousView(channel);
             JSONObject response = new JSONObject();
             response.put("success", true);
@@ -2,230 +2,803 @@ package com.redisplay.app.server;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import com.redisplay.app.utils.JsonMergePatch;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class InternalViewManager {
     private static final String TAG = "InternalViewManager";
     private static final String PREFS_NAME = "InternalViews";
     private static final String KEY_VIEWS = "views_json";
     private static final String KEY_CURRENT_VIEWS = "channel_current_views"; // Persist current view per channel
+    private static final String KEY_VIEWS_ENABLED = "views_enabled";
+    private static final long PLAYBACK_CHECKPOINT_INTERVAL = 10000; // At most one playback state write per 10s
+    private static final String DEFAULT_CHANNEL = InternalChannelConfig.DEFAULT_CHANNEL; // Channel used when none is given
+    private static final String SCHEDULE_BOUNDARY_KEY = "#schedule"; // Scheduler key; '#' cannot appear in a channel path
+    private static final int MAX_SCHEDULE_WAKE_MINUTES = 60; // Re-check hourly so wall clock changes are picked up
     
     private Context context;
-    private Map<String, JSONObject> views = new HashMap<>();
-    private Map<String, Boolean> viewEnabled = new HashMap<>(); // viewId -> enabled
-    private Map<String, String> channelCurrentViews = new HashMap<>(); // channel -> viewId
-    private Map<String, Long> viewActivationTime = new HashMap<>(); // channel -> timestamp
-    private Map<String, Map<String, Long>> manualOverrides = new HashMap<>(); // channel -> { viewId: timestamp }
+    private ViewStore viewStore; // Journal of view records, created once a context is set
+    private PlaybackCheckpoint playbackCheckpoint; // Current views, activation times and overrides
     
-    // Rotation scheduling
-    // Use a Handler with a background thread's Looper since we're running in a server context
-    private volatile Handler rotationHandler;
-    private final Object rotationHandlerLock = new Object();
-    private Map<String, Runnable> channelRotationRunnables = new HashMap<>(); // channel -> Runnable
-    private InternalChannelConfig channelConfig; // Reference to channel config for getting channel views
+    // Concurrency model: HTTP workers, rotation callbacks and in-process clients all call in.
+    // Catalogue mutations run under writeLock. The view catalogue is published as an
+    // immutable snapshot through a volatile reference, so readers never lock and always see
+    // a consistent set of views and enabled flags. Playback is sharded per channel: each
+    // channel's changes synchronize on its ChannelState only, so channels never wait on
+    // each other. Lock order is writeLock, then a channel; a channel lock is never held
+    // while taking writeLock. Catalogue mutations publish the new snapshot before touching
+    // any channel, so a channel that checks the catalogue under its lock sees the change.
+    private final Object writeLock = new Object();
+    private volatile Catalog catalog = Catalog.EMPTY;
+    private long nextViewVersion = 1; // guarded by writeLock
+    private final ConcurrentHashMap<String, ChannelState> channels = new ConcurrentHashMap<>(); // channel -> state, created on first use
     
-    // Initialize rotation handler on first use
-    private void initRotationHandler() {
-        if (rotationHandler == null) {
-            synchronized (rotationHandlerLock) {
-                if (rotationHandler == null) {
-                    // Use MainLooper - it should work from any thread
-                    // MainLooper is always available in Android apps
-                    rotationHandler = new Handler(Looper.getMainLooper());
-                    Log.d(TAG, "Initialized rotation handler with MainLooper");
+    // Rotation scheduling - one dedicated thread owns all channels' deadlines, so rotations
+    // never run on the UI thread; the display only receives the resulting view_change
+    private final RotationScheduler rotationScheduler = new RotationScheduler();
+    private final Object scheduleBoundaryLock = new Object();
+    private volatile InternalChannelConfig channelConfig; // Reference to channel config for getting channel views
+    
+    /**
+     * Listener for in-process consumers (e.g. the internal connection provider) that
+     * want current view changes pushed to them instead of polling getCurrentView.
+     */
+    public interface ViewChangeListener {
+        /**
+         * Called on the thread that changed the view with the new current view.
+         */
+        void onViewChanged(String channel, JSONObject view);
+        
+        /**
+         * Called when the current view was changed in place by a merge patch. The patch
+         * is the RFC 7386 document that was applied to the view.
+         */
+        void onViewUpdated(String channel, String viewId, JSONObject patch);
+    }
+    
+    /**
+     * Immutable snapshot of the view catalogue. Stored view objects are never mutated
+     * once published; every change copies the maps and swaps in a new snapshot, which
+     * also drops the serialized list caches of the old one.
+     */
+    private static final class Catalog {
+        static final Catalog EMPTY = new Catalog(new LinkedHashMap<String, ViewEntry>(), new HashMap<String, Boolean>());
+        
+        final Map<String, ViewEntry> views; // viewId -> entry, in insertion order
+        final Map<String, Boolean> enabled; // viewId -> enabled
+        private volatile byte[] allViewsJson;
+        private volatile byte[] enabledViewsJson;
+        private volatile ChannelPlaylist allViewsPlaylist;
+        
+        Catalog(Map<String, ViewEntry> views, Map<String, Boolean> enabled) {
+            this.views = Collections.unmodifiableMap(views);
+            this.enabled = Collections.unmodifiableMap(enabled);
+        }
+        
+        boolean isEnabled(String id) {
+            Boolean value = enabled.get(id);
+            return value == null || value;
+        }
+        
+        String firstViewId() {
+            return views.isEmpty() ? null : views.keySet().iterator().next();
+        }
+        
+        Map<String, JSONObject> viewObjects() {
+            Map<String, JSONObject> result = new LinkedHashMap<>();
+            for (ViewEntry entry : views.values()) {
+                result.put(entry.id, entry.view);
+            }
+            return result;
+        }
+        
+        // Every enabled view in insertion order, for channels without a configured list
+        ChannelPlaylist getAllViewsPlaylist() {
+            ChannelPlaylist playlist = allViewsPlaylist;
+            if (playlist == null) {
+                List<ViewEntry> playable = new ArrayList<>();
+                for (ViewEntry entry : views.values()) {
+                    if (isEnabled(entry.id)) {
+                        playable.add(entry);
+                    }
+                }
+                playlist = new ChannelPlaylist(views.keySet(), playable);
+                allViewsPlaylist = playlist;
+            }
+            return playlist;
+        }
+        
+        byte[] getAllViewsJson() {
+            byte[] bytes = allViewsJson;
+            if (bytes == null) {
+                bytes = serializeList(true);
+                allViewsJson = bytes;
+            }
+            return bytes;
+        }
+        
+        byte[] getEnabledViewsJson() {
+            byte[] bytes = enabledViewsJson;
+            if (bytes == null) {
+                bytes = serializeList(false);
+                enabledViewsJson = bytes;
+            }
+            return bytes;
+        }
+        
+        // Same shape as getAllViews/getEnabledViews, assembled from each entry's cached bytes
+        private byte[] serializeList(boolean includeDisabled) {
+            java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream(4096);
+            out.write('[');
+            boolean first = true;
+            for (ViewEntry entry : views.values()) {
+                boolean viewEnabled = isEnabled(entry.id);
+                if (!includeDisabled && !viewEnabled) {
+                    continue;
+                }
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                byte[] head = ViewEntry.utf8("{\"id\":" + JSONObject.quote(entry.id) + ",\"view\":");
+                byte[] json = entry.getJson();
+                out.write(head, 0, head.length);
+                out.write(json, 0, json.length);
+                if (includeDisabled) {
+                    byte[] tail = ViewEntry.utf8(",\"enabled\":" + viewEnabled);
+                    out.write(tail, 0, tail.length);
                 }
+                out.write('}');
+            }
+            out.write(']');
+            return out.toByteArray();
+        }
+    }
+    
+    // Swap in a new catalogue and move the schedule wake-up to its next boundary
+    private void publishCatalog(Map<String, ViewEntry> views, Map<String, Boolean> viewEnabled) {
+        catalog = new Catalog(views, viewEnabled);
+        scheduleNextScheduleBoundary();
+    }
+    
+    // Wrap a view in a new entry; the version orders every change made under writeLock
+    private ViewEntry newEntry(String id, JSONObject view) {
+        return new ViewEntry(id, view, nextViewVersion++);
+    }
+    
+    private static String channelName(String channel) {
+        return channel != null ? channel : DEFAULT_CHANNEL;
+    }
+    
+    // The channel's state, created on first use. Null for a name the channel config does
+    // not know: only creating a channel there sets up state for it.
+    private ChannelState channelState(String channel) {
+        channel = channelName(channel);
+        ChannelState state = channels.get(channel);
+        if (state == null) {
+            InternalChannelConfig config = channelConfig;
+            if (config != null && !DEFAULT_CHANNEL.equals(channel) && !config.hasChannel(channel)) {
+                return null;
+            }
+            ChannelState created = new ChannelState(channel);
+            state = channels.putIfAbsent(channel, created);
+            if (state == null) {
+                state = created;
             }
         }
+        return state;
+    }
+    
+    // Drop cached playlists so they are rebuilt from the channel config on next use
+    private void invalidatePlaylist(ChannelState state) {
+        synchronized (state) {
+            state.playlist = null;
+        }
     }
     
     public InternalViewManager() {
-        // Initialize with default channel
-        channelCurrentViews.put("test", null);
     }
     
     public void setChannelConfig(InternalChannelConfig channelConfig) {
         this.channelConfig = channelConfig;
+        for (ChannelState state : channels.values()) {
+            invalidatePlaylist(state);
+        }
+        if (channelConfig != null) {
+            channelConfig.setChannelViewsListener(new InternalChannelConfig.ChannelViewsListener() {
+                @Override
+                public void onChannelViewsChanged(String channel) {
+                    ChannelState state = channels.get(channel);
+                    if (state != null) {
+                        invalidatePlaylist(state);
+                    }
+                }
+            });
+        }
     }
     
+    /**
+     * Forget a deleted channel's playback state: stop its rotation and drop its current
+     * view, overrides and playlist. The state itself is dropped too, unless in-process
+     * subscribers are still registered; then it is kept and reused if the channel is
+     * created again.
+     */
+    public void removeChannel(String channel) {
+        ChannelState state = channels.get(channelName(channel));
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            cancelRotation(state);
+            state.currentViewId = null;
+            state.manualOverrides.clear();
+            state.playlist = null;
+            state.bumpVersion();
+            if (state.listeners.isEmpty()) {
+                channels.remove(state.name, state);
+            }
+        }
+        markPlaybackDirty();
+        Log.d(TAG, "Removed playback state for channel " + state.name);
+    }
+    
+    /**
+     * Set the context used for persistence and load the stored catalogue on a background
+     * thread. Returns immediately: channels are put back on their checkpointed views as
+     * soon as those views are read, and the rest of the catalogue follows. Changes made
+     * meanwhile wait for the load to finish.
+     */
     public void setContext(Context context) {
-        this.context = context;
-        loadViews();
+        synchronized (writeLock) {
+            this.context = context;
+            viewStore = new ViewStore(context.getFilesDir());
+            playbackCheckpoint = new PlaybackCheckpoint(context.getFilesDir(), PLAYBACK_CHECKPOINT_INTERVAL,
+                new PlaybackCheckpoint.Source() {
+                    @Override
+                    public JSONObject snapshotPlaybackState() {
+                        return buildPlaybackState();
+                    }
+                });
+        }
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (writeLock) {
+                    loadViews();
+                }
+            }
+        }, "view-catalog-load");
+        loader.setDaemon(true);
+        loader.start();
     }
     
+    // Called under writeLock
     private void loadViews() {
         if (context == null) return;
         
-        try {
-            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            String viewsJson = prefs.getString(KEY_VIEWS, null);
-            String enabledJson = prefs.getString("views_enabled", null);
-            
-            if (viewsJson != null && !viewsJson.isEmpty()) {
-                JSONObject viewsObj = new JSONObject(viewsJson);
-                java.util.Iterator<String> keys = viewsObj.keys();
-                while (keys.hasNext()) {
-                    String id = keys.next();
-                    JSONObject view = viewsObj.getJSONObject(id);
-                    views.put(id, view);
-                }
-                Log.d(TAG, "Loaded " + views.size() + " views from storage");
+        long start = System.nanoTime();
+        Catalog initial = catalog;
+        JSONObject playbackState = playbackCheckpoint.load();
+        
+        // First the checkpointed current views alone, so displays get content before the
+        // rest of the catalogue is parsed
+        Map<String, JSONObject> preloaded = new HashMap<>();
+        Map<String, ViewEntry> preloadedEntries = new HashMap<>();
+        if (playbackState != null && viewStore.exists()) {
+            try {
+                preloaded = viewStore.loadViews(savedCurrentViewIds(playbackState));
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading current views from storage: " + e.getMessage());
             }
-            
-            if (enabledJson != null && !enabledJson.isEmpty()) {
-                JSONObject enabledObj = new JSONObject(enabledJson);
-                java.util.Iterator<String> keys = enabledObj.keys();
-                while (keys.hasNext()) {
-                    String id = keys.next();
-                    viewEnabled.put(id, enabledObj.optBoolean(id, true));
+            if (!preloaded.isEmpty()) {
+                Map<String, ViewEntry> firstViews = new LinkedHashMap<>(initial.views);
+                for (Map.Entry<String, JSONObject> entry : preloaded.entrySet()) {
+                    ViewEntry viewEntry = newEntry(entry.getKey(), entry.getValue());
+                    preloadedEntries.put(entry.getKey(), viewEntry);
+                    firstViews.put(entry.getKey(), viewEntry);
                 }
+                publishCatalog(firstViews, new HashMap<>(initial.enabled));
+                int restored = restorePlaybackState(playbackState, false);
+                Log.i(TAG, "Startup: restored " + restored + " channels on " + preloaded.size()
+                    + " views in " + (System.nanoTime() - start) / 1000000 + "ms");
+            }
+        }
+        
+        Map<String, JSONObject> views = initial.viewObjects();
+        Map<String, Boolean> viewEnabled = new HashMap<>(initial.enabled);
+        Map<String, String> storedCurrentViews = new HashMap<>();
+        try {
+            if (viewStore.exists()) {
+                viewStore.load(views, viewEnabled, storedCurrentViews, preloaded);
+                Log.d(TAG, "Loaded " + views.size() + " views from journal");
             } else {
-                // Default all views to enabled if no saved state
-                for (String id : views.keySet()) {
-                    if (!viewEnabled.containsKey(id)) {
-                        viewEnabled.put(id, true);
+                loadLegacyViews(views, viewEnabled, storedCurrentViews);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading views from storage: " + e.getMessage());
+        }
+        
+        // Views without a stored flag are enabled by default
+        for (String id : views.keySet()) {
+            if (!viewEnabled.containsKey(id)) {
+                viewEnabled.put(id, true);
+            }
+        }
+        Map<String, ViewEntry> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, JSONObject> entry : views.entrySet()) {
+            // Views already on screen keep their entry (and its serialized bytes)
+            ViewEntry preloadedEntry = preloadedEntries.get(entry.getKey());
+            entries.put(entry.getKey(), preloadedEntry != null && preloadedEntry.view == entry.getValue()
+                ? preloadedEntry : newEntry(entry.getKey(), entry.getValue()));
+        }
+        publishCatalog(entries, viewEnabled);
+        for (ChannelState state : channels.values()) {
+            invalidatePlaylist(state);
+        }
+        
+        if (playbackState != null) {
+            restorePlaybackState(playbackState, true);
+        } else {
+            // No checkpoint yet: start from current views saved with the catalogue
+            for (Map.Entry<String, String> entry : storedCurrentViews.entrySet()) {
+                String viewId = entry.getValue();
+                if (viewId != null && views.containsKey(viewId)) {
+                    ChannelState state = channelState(entry.getKey());
+                    if (state == null) {
+                        continue; // Channel deleted since
+                    }
+                    synchronized (state) {
+                        state.currentViewId = viewId;
+                        scheduleViewRotation(viewId, state);
                     }
                 }
             }
-            
-            // Load current views per channel
-            String currentViewsJson = prefs.getString(KEY_CURRENT_VIEWS, null);
-            if (currentViewsJson != null && !currentViewsJson.isEmpty()) {
-                try {
-                    JSONObject currentViewsObj = new JSONObject(currentViewsJson);
-                    java.util.Iterator<String> keys = currentViewsObj.keys();
-                    while (keys.hasNext()) {
-                        String channel = keys.next();
-                        String viewId = currentViewsObj.optString(channel, null);
-                        if (viewId != null && !viewId.equals("null") && views.containsKey(viewId)) {
-                            channelCurrentViews.put(channel, viewId);
-                            // Schedule rotation for loaded view
-                            scheduleViewRotation(viewId, channel);
+            if (!storedCurrentViews.isEmpty()) {
+                playbackCheckpoint.markDirty();
+            }
+        }
+        Log.i(TAG, "Startup: loaded " + entries.size() + " views for " + channels.size() + " channels in "
+            + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+    
+    private static Set<String> savedCurrentViewIds(JSONObject state) {
+        Set<String> ids = new HashSet<>();
+        JSONObject savedChannels = state.optJSONObject("channels");
+        if (savedChannels != null) {
+            java.util.Iterator<String> keys = savedChannels.keys();
+            while (keys.hasNext()) {
+                JSONObject saved = savedChannels.optJSONObject(keys.next());
+                if (saved != null && !saved.isNull("current")) {
+                    ids.add(saved.optString("current"));
+                }
+            }
+        }
+        return ids;
+    }
+    
+    // Resume each channel that shows nothing yet on its checkpointed view. With
+    // resumeRotation, channels on their checkpointed view also rotate after whatever was
+    // left of its time; that waits for the full catalogue, so playlists are complete.
+    // Returns the number of channels put on a view.
+    private int restorePlaybackState(JSONObject state, boolean resumeRotation) {
+        JSONObject savedChannels = state.optJSONObject("channels");
+        if (savedChannels == null) {
+            return 0;
+        }
+        int restored = 0;
+        long now = System.currentTimeMillis();
+        java.util.Iterator<String> keys = savedChannels.keys();
+        while (keys.hasNext()) {
+            String channel = keys.next();
+            JSONObject saved = savedChannels.optJSONObject(channel);
+            if (saved == null) {
+                continue;
+            }
+            String viewId = saved.isNull("current") ? null : saved.optString("current", null);
+            if (viewId == null || !catalog.views.containsKey(viewId)) {
+                continue;
+            }
+            ChannelState channelState = channelState(channel);
+            if (channelState == null) {
+                continue; // Channel deleted since the checkpoint
+            }
+            long activatedAt = saved.optLong("activatedAt", now);
+            synchronized (channelState) {
+                if (channelState.currentViewId == null) {
+                    channelState.currentViewId = viewId;
+                    channelState.activatedAt = activatedAt;
+                    
+                    JSONObject overridesObj = saved.optJSONObject("overrides");
+                    if (overridesObj != null) {
+                        java.util.Iterator<String> overrideKeys = overridesObj.keys();
+                        while (overrideKeys.hasNext()) {
+                            String overrideId = overrideKeys.next();
+                            channelState.manualOverrides.put(overrideId, overridesObj.optLong(overrideId));
                         }
                     }
-                    Log.d(TAG, "Loaded current views for " + channelCurrentViews.size() + " channels");
-                } catch (Exception e) {
-                    Log.e(TAG, "Error loading current views: " + e.getMessage());
+                    channelState.bumpVersion();
+                    broadcastCurrentView(channelState);
+                    restored++;
+                }
+                
+                // Not if the channel was switched while the catalogue loaded
+                if (resumeRotation && viewId.equals(channelState.currentViewId)
+                        && !rotationScheduler.isPending(channelState.name)) {
+                    scheduleViewRotation(viewId, channelState, Math.max(0, now - activatedAt));
                 }
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading views from storage: " + e.getMessage());
         }
+        return restored;
     }
     
-    private void saveViews() {
-        if (context == null) return;
-        
+    private JSONObject buildPlaybackState() {
+        JSONObject state = new JSONObject();
         try {
-            JSONObject viewsObj = new JSONObject();
-            JSONObject enabledObj = new JSONObject();
-            for (Map.Entry<String, JSONObject> entry : views.entrySet()) {
-                viewsObj.put(entry.getKey(), entry.getValue());
-                Boolean enabled = viewEnabled.get(entry.getKey());
-                if (enabled == null) {
-                    enabled = true; // Default to enabled
+            JSONObject savedChannels = new JSONObject();
+            for (ChannelState channelState : channels.values()) {
+                String viewId = channelState.currentViewId;
+                if (viewId == null) {
+                    continue;
+                }
+                JSONObject saved = new JSONObject();
+                saved.put("current", viewId);
+                saved.put("activatedAt", channelState.activatedAt);
+                if (!channelState.manualOverrides.isEmpty()) {
+                    saved.put("overrides", new JSONObject(new HashMap<>(channelState.manualOverrides)));
                 }
-                enabledObj.put(entry.getKey(), enabled);
+                savedChannels.put(channelState.name, saved);
             }
-            
-            // Save current views per channel
-            JSONObject currentViewsObj = new JSONObject();
-            for (Map.Entry<String, String> entry : channelCurrentViews.entrySet()) {
-                currentViewsObj.put(entry.getKey(), entry.getValue() != null ? entry.getValue() : "null");
+            state.put("channels", savedChannels);
+            state.put("savedAt", System.currentTimeMillis());
+        } catch (JSONException e) {
+            Log.e(TAG, "Error building playback state: " + e.getMessage());
+        }
+        return state;
+    }
+    
+    /**
+     * Write pending playback state now instead of waiting for the next checkpoint.
+     * Called when the app pauses so a restart resumes exactly where it left off.
+     */
+    public void flushPlaybackState() {
+        if (playbackCheckpoint != null) {
+            playbackCheckpoint.flush();
+        }
+    }
+    
+    private void markPlaybackDirty() {
+        if (playbackCheckpoint != null) {
+            playbackCheckpoint.markDirty();
+        }
+    }
+    
+    // One-time migration from the SharedPreferences blobs used before the journal
+    private void loadLegacyViews(Map<String, JSONObject> views, Map<String, Boolean> viewEnabled,
+                                 Map<String, String> storedCurrentViews) throws Exception {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String viewsJson = prefs.getString(KEY_VIEWS, null);
+        String enabledJson = prefs.getString(KEY_VIEWS_ENABLED, null);
+        String currentViewsJson = prefs.getString(KEY_CURRENT_VIEWS, null);
+        if (viewsJson == null || viewsJson.isEmpty()) {
+            return;
+        }
+        
+        JSONObject viewsObj = new JSONObject(viewsJson);
+        java.util.Iterator<String> keys = viewsObj.keys();
+        while (keys.hasNext()) {
+            String id = keys.next();
+            views.put(id, viewsObj.getJSONObject(id));
+        }
+        
+        if (enabledJson != null && !enabledJson.isEmpty()) {
+            JSONObject enabledObj = new JSONObject(enabledJson);
+            keys = enabledObj.keys();
+            while (keys.hasNext()) {
+                String id = keys.next();
+                viewEnabled.put(id, enabledObj.optBoolean(id, true));
+            }
+        }
+        
+        if (currentViewsJson != null && !currentViewsJson.isEmpty()) {
+            JSONObject currentViewsObj = new JSONObject(currentViewsJson);
+            keys = currentViewsObj.keys();
+            while (keys.hasNext()) {
+                String channel = keys.next();
+                String viewId = currentViewsObj.optString(channel, null);
+                if (viewId != null && !viewId.equals("null")) {
+                    storedCurrentViews.put(channel, viewId);
+                }
+            }
+        }
+        
+        viewStore.compact(views, viewEnabled);
+        prefs.edit()
+            .remove(KEY_VIEWS)
+            .remove(KEY_VIEWS_ENABLED)
+            .remove(KEY_CURRENT_VIEWS)
+            .apply();
+        Log.d(TAG, "Migrated " + views.size() + " views from preferences to journal");
+    }
+    
+    // Append records to the view journal; a no-op until a context is set
+    private void persist(JSONObject... records) {
+        persist(Arrays.asList(records));
+    }
+    
+    private void persist(List<JSONObject> records) {
+        if (viewStore == null) return;
+        
+        try {
+            viewStore.append(records);
+            Catalog snapshot = catalog;
+            if (viewStore.needsCompaction(snapshot.views.size() + snapshot.enabled.size())) {
+                viewStore.compact(snapshot.viewObjects(), snapshot.enabled);
             }
-            
-            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            prefs.edit()
-                .putString(KEY_VIEWS, viewsObj.toString())
-                .putString("views_enabled", enabledObj.toString())
-                .putString(KEY_CURRENT_VIEWS, currentViewsObj.toString())
-                .apply();
-            Log.d(TAG, "Saved " + views.size() + " views to storage");
         } catch (Exception e) {
             Log.e(TAG, "Error saving views to storage: " + e.getMessage());
         }
     }
     
-    public void addView(String id, JSONObject view) {
-        try {
-            // Normalize view structure - ensure it has metadata and data
-            JSONObject normalizedView = new JSONObject();
-            
-            // Check if view already has metadata and data (new format)
-            if (view.has("metadata") && view.has("data")) {
-                // Already in correct format
-                normalizedView.put("id", id);
-                normalizedView.put("metadata", view.getJSONObject("metadata"));
+    // Normalize view structure - ensure it has id, metadata and data
+    private static JSONObject normalizeView(String id, JSONObject view) throws JSONException {
+        JSONObject normalizedView = new JSONObject();
+        
+        // Check if view already has metadata and data (new format)
+        if (view.has("metadata") && view.has("data")) {
+            // Already in correct format
+            normalizedView.put("id", id);
+            normalizedView.put("metadata", view.getJSONObject("metadata"));
+            normalizedView.put("data", view.getJSONObject("data"));
+        } else {
+            // Legacy format - wrap in default metadata
+            normalizedView.put("id", id);
+            JSONObject metadata = new JSONObject();
+            metadata.put("type", "custom");
+            normalizedView.put("metadata", metadata);
+            // Use the entire view as data if no data field exists
+            if (view.has("data")) {
                 normalizedView.put("data", view.getJSONObject("data"));
             } else {
-                // Legacy format - wrap in default metadata
-                normalizedView.put("id", id);
-                JSONObject metadata = new JSONObject();
-                metadata.put("type", "custom");
-                normalizedView.put("metadata", metadata);
-                // Use the entire view as data if no data field exists
-                if (view.has("data")) {
-                    normalizedView.put("data", view.getJSONObject("data"));
-                } else {
-                    normalizedView.put("data", view);
+                normalizedView.put("data", view);
+            }
+        }
+        return normalizedView;
+    }
+    
+    // Store a normalized view in a catalogue draft without persisting or broadcasting
+    private void putView(Map<String, ViewEntry> views, Map<String, Boolean> viewEnabled,
+                         String id, JSONObject normalizedView) {
+        views.put(id, newEntry(id, normalizedView));
+        // New views are enabled by default
+        if (!viewEnabled.containsKey(id)) {
+            viewEnabled.put(id, true);
+        }
+    }
+    
+    // Channels currently showing the view. Callers re-check under each channel's lock,
+    // since the channel may have moved on.
+    private List<ChannelState> channelsShowing(String id) {
+        List<ChannelState> result = new ArrayList<>();
+        for (ChannelState state : channels.values()) {
+            if (id.equals(state.currentViewId)) {
+                result.add(state);
+            }
+        }
+        return result;
+    }
+    
+    // Give the default channel this view if it shows nothing yet
+    private void showOnDefaultChannelIfEmpty(String id, boolean persist) {
+        ChannelState state = channelState(DEFAULT_CHANNEL);
+        synchronized (state) {
+            if (state.currentViewId == null) {
+                setCurrentView(id, state, true, persist);
+            }
+        }
+    }
+    
+    public void addView(String id, JSONObject view) {
+        synchronized (writeLock) {
+            Map<String, ViewEntry> views = new LinkedHashMap<>(catalog.views);
+            Map<String, Boolean> viewEnabled = new HashMap<>(catalog.enabled);
+            try {
+                JSONObject normalizedView = normalizeView(id, view);
+                putView(views, viewEnabled, id, normalizedView);
+                publishCatalog(views, viewEnabled);
+                updatePlaylists(id);
+                Log.d(TAG, "Added view: " + id);
+                
+                // Persist only this view
+                persist(ViewStore.putRecord(id, normalizedView));
+                
+                // Replacing a view that is on screen changes what its channels serve
+                for (ChannelState state : channelsShowing(id)) {
+                    state.bumpVersion();
                 }
+                
+                // If no current view for default channel, set this one
+                showOnDefaultChannelIfEmpty(id, true);
+            } catch (Exception e) {
+                Log.e(TAG, "Error normalizing view " + id + ": " + e.getMessage(), e);
+                // Fallback: store as-is if normalization fails
+                views.put(id, newEntry(id, view));
+                publishCatalog(views, viewEnabled);
+                updatePlaylists(id);
+                Log.d(TAG, "Added view (without normalization): " + id);
+            }
+        }
+    }
+    
+    /**
+     * Apply a batch of upserts and deletes plus channel membership with one write of the
+     * view store and one of the channel config. Every upsert is normalized before anything
+     * changes, so an invalid view rejects the whole batch. Each affected channel gets at
+     * most one view_change.
+     */
+    public void applyBatch(Map<String, JSONObject> upserts, Set<String> deletes,
+                           Map<String, JSONArray> channelViews) throws JSONException {
+        Map<String, JSONObject> normalized = new LinkedHashMap<>();
+        for (Map.Entry<String, JSONObject> entry : upserts.entrySet()) {
+            normalized.put(entry.getKey(), normalizeView(entry.getKey(), entry.getValue()));
+        }
+        
+        synchronized (writeLock) {
+            Map<String, ViewEntry> views = new LinkedHashMap<>(catalog.views);
+            Map<String, Boolean> viewEnabled = new HashMap<>(catalog.enabled);
+            for (Map.Entry<String, JSONObject> entry : normalized.entrySet()) {
+                putView(views, viewEnabled, entry.getKey(), entry.getValue());
+            }
+            for (String id : deletes) {
+                views.remove(id);
+                viewEnabled.remove(id);
+            }
+            publishCatalog(views, viewEnabled);
+            for (String id : normalized.keySet()) {
+                updatePlaylists(id);
+            }
+            for (String id : deletes) {
+                updatePlaylists(id);
             }
             
-            views.put(id, normalizedView);
-            // New views are enabled by default
-            if (!viewEnabled.containsKey(id)) {
-                viewEnabled.put(id, true);
+            if (channelConfig != null && (!channelViews.isEmpty() || !deletes.isEmpty())) {
+                Map<String, JSONArray> membership = new HashMap<>(channelViews);
+                if (!deletes.isEmpty()) {
+                    // Drop deleted views from every channel they were listed in
+                    for (String channel : channelConfig.getAllChannels()) {
+                        JSONArray source = membership.containsKey(channel)
+                            ? membership.get(channel) : channelConfig.getChannelViews(channel);
+                        JSONArray filtered = new JSONArray();
+                        boolean changed = false;
+                        for (int i = 0; source != null && i < source.length(); i++) {
+                            String id = source.optString(i, null);
+                            if (id != null && deletes.contains(id)) {
+                                changed = true;
+                            } else {
+                                filtered.put(source.opt(i));
+                            }
+                        }
+                        if (changed || membership.containsKey(channel)) {
+                            membership.put(channel, filtered);
+                        }
+                    }
+                }
+                channelConfig.setAllChannelViews(membership);
             }
-            Log.d(TAG, "Added view: " + id);
             
-            // Persist views
-            saveViews();
+            // Settle current views: replace deleted ones, re-announce replaced ones
+            for (ChannelState state : channels.values()) {
+                synchronized (state) {
+                    String currentId = state.currentViewId;
+                    if (currentId != null && deletes.contains(currentId)) {
+                        setCurrentView(catalog.firstViewId(), state, true, false);
+                    } else if (currentId != null && normalized.containsKey(currentId)) {
+                        state.bumpVersion();
+                        broadcastCurrentView(state);
+                    }
+                }
+            }
+            if (!normalized.isEmpty()) {
+                showOnDefaultChannelIfEmpty(normalized.keySet().iterator().next(), false);
+            }
             
-            // If no current view for default channel, set this one
-            if (channelCurrentViews.get("test") == null) {
-                setCurrentView(id, "test");
+            List<JSONObject> records = new ArrayList<>();
+            for (Map.Entry<String, JSONObject> entry : normalized.entrySet()) {
+                records.add(ViewStore.putRecord(entry.getKey(), entry.getValue()));
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error normalizing view " + id + ": " + e.getMessage(), e);
-            // Fallback: store as-is if normalization fails
-            views.put(id, view);
-            Log.d(TAG, "Added view (without normalization): " + id);
+            for (String id : deletes) {
+                records.add(ViewStore.deleteRecord(id));
+            }
+            persist(records);
+            markPlaybackDirty();
         }
+        Log.d(TAG, "Applied batch: " + normalized.size() + " upserts, " + deletes.size() + " deletes");
     }
     
-    public void removeView(String id) {
-        views.remove(id);
-        Log.d(TAG, "Removed view: " + id);
-        
-        // Persist views
-        saveViews();
+    /**
+     * Apply an RFC 7386 merge patch to a stored view. Returns false if the view does not
+     * exist. The id cannot be patched and metadata/data must stay objects, which is checked
+     * before anything changes. Channels showing the view get a view_update carrying only
+     * the patch.
+     */
+    public boolean patchView(String id, JSONObject patch) throws JSONException {
+        JSONObject effectivePatch = new JSONObject(patch.toString());
+        effectivePatch.remove("id");
+        for (String key : new String[] {"metadata", "data"}) {
+            if (effectivePatch.has(key) && !(effectivePatch.get(key) instanceof JSONObject)) {
+                throw new JSONException(key + " must be an object");
+            }
+        }
         
-        // If this was the current view, switch to another
-        for (Map.Entry<String, String> entry : channelCurrentViews.entrySet()) {
-            if (id.equals(entry.getValue())) {
-                String nextView = views.isEmpty() ? null : views.keySet().iterator().next();
-                setCurrentView(nextView, entry.getKey());
+        synchronized (writeLock) {
+            ViewEntry stored = catalog.views.get(id);
+            if (stored == null) {
+                return false;
+            }
+            
+            // Published views are shared with readers, so patch a copy and swap it in
+            JSONObject view = JsonMergePatch.apply(new JSONObject(stored.view.toString()), effectivePatch);
+            Map<String, ViewEntry> views = new LinkedHashMap<>(catalog.views);
+            views.put(id, newEntry(id, view));
+            publishCatalog(views, new HashMap<>(catalog.enabled));
+            updatePlaylists(id);
+            persist(ViewStore.putRecord(id, view));
+            Log.d(TAG, "Patched view: " + id);
+            
+            for (ChannelState state : channelsShowing(id)) {
+                synchronized (state) {
+                    if (id.equals(state.currentViewId)) {
+                        state.bumpVersion();
+                        broadcastViewUpdate(state, id, effectivePatch);
+                    }
+                }
+            }
+            return true;
+        }
+    }
+    
+    public void removeView(String id) {
+        synchronized (writeLock) {
+            Map<String, ViewEntry> views = new LinkedHashMap<>(catalog.views);
+            views.remove(id);
+            Map<String, Boolean> viewEnabled = new HashMap<>(catalog.enabled);
+            viewEnabled.remove(id);
+            publishCatalog(views, viewEnabled);
+            updatePlaylists(id);
+            Log.d(TAG, "Removed view: " + id);
+            
+            // Persist views
+            persist(ViewStore.deleteRecord(id));
+            
+            // If this was the current view, switch to another
+            for (ChannelState state : channelsShowing(id)) {
+                synchronized (state) {
+                    if (id.equals(state.currentViewId)) {
+                        setCurrentView(catalog.firstViewId(), state, true, true);
+                    }
+                }
             }
         }
     }
     
     public JSONObject getView(String id) {
-        return views.get(id);
+        ViewEntry entry = catalog.views.get(id);
+        return entry != null ? entry.view : null;
     }
     
     public JSONArray getAllViews() {
+        Catalog snapshot = catalog;
         JSONArray result = new JSONArray();
-        for (Map.Entry<String, JSONObject> entry : views.entrySet()) {
+        for (Map.Entry<String, ViewEntry> entry : snapshot.views.entrySet()) {
             try {
                 JSONObject view = new JSONObject();
                 view.put("id", entry.getKey());
-                view.put("view", entry.getValue());
-                Boolean enabled = viewEnabled.get(entry.getKey());
-                view.put("enabled", enabled != null ? enabled : true);
+                view.put("view", entry.getValue().view);
+                view.put("enabled", snapshot.isEnabled(entry.getKey()));
                 result.put(view);
             } catch (Exception e) {
                 Log.e(TAG, "Error serializing view: " + e.getMessage());
@@ -235,14 +808,14 @@ public class InternalViewManager {
     }
     
     public JSONArray getEnabledViews() {
+        Catalog snapshot = catalog;
         JSONArray result = new JSONArray();
-        for (Map.Entry<String, JSONObject> entry : views.entrySet()) {
-            Boolean enabled = viewEnabled.get(entry.getKey());
-            if (enabled == null || enabled) {
+        for (Map.Entry<String, ViewEntry> entry : snapshot.views.entrySet()) {
+            if (snapshot.isEnabled(entry.getKey())) {
                 try {
                     JSONObject view = new JSONObject();
                     view.put("id", entry.getKey());
-                    view.put("view", entry.getValue());
+                    view.put("view", entry.getValue().view);
                     result.put(view);
                 } catch (Exception e) {
                     Log.e(TAG, "Error serializing view: " + e.getMessage());
@@ -252,63 +825,146 @@ public class InternalViewManager {
         return result;
     }
     
+    /**
+     * getAllViews() serialized as UTF-8, cached until the catalogue next changes.
+     */
+    public byte[] getAllViewsJson() {
+        return catalog.getAllViewsJson();
+    }
+    
+    /**
+     * getEnabledViews() serialized as UTF-8, cached until the catalogue next changes.
+     */
+    public byte[] getEnabledViewsJson() {
+        return catalog.getEnabledViewsJson();
+    }
+    
     public void setViewEnabled(String id, boolean enabled) {
-        viewEnabled.put(id, enabled);
-        saveViews();
-        Log.d(TAG, "View " + id + " " + (enabled ? "enabled" : "disabled"));
-        
-        // If disabling current view, switch to another
-        if (!enabled) {
-            for (Map.Entry<String, String> entry : channelCurrentViews.entrySet()) {
-                if (id.equals(entry.getValue())) {
-                    String nextView = null;
-                    for (Map.Entry<String, JSONObject> v : views.entrySet()) {
-                        Boolean vEnabled = viewEnabled.get(v.getKey());
-                        if ((vEnabled == null || vEnabled) && !v.getKey().equals(id)) {
-                            nextView = v.getKey();
-                            break;
+        synchronized (writeLock) {
+            Map<String, Boolean> viewEnabled = new HashMap<>(catalog.enabled);
+            viewEnabled.put(id, enabled);
+            publishCatalog(new LinkedHashMap<>(catalog.views), viewEnabled);
+            updatePlaylists(id);
+            persist(ViewStore.enabledRecord(id, enabled));
+            Log.d(TAG, "View " + id + " " + (enabled ? "enabled" : "disabled"));
+            
+            // If disabling current view, switch to another
+            if (!enabled) {
+                String nextView = null;
+                for (String candidate : catalog.views.keySet()) {
+                    if (catalog.isEnabled(candidate) && !candidate.equals(id)) {
+                        nextView = candidate;
+                        break;
+                    }
+                }
+                for (ChannelState state : channelsShowing(id)) {
+                    synchronized (state) {
+                        if (id.equals(state.currentViewId)) {
+                            setCurrentView(nextView, state, true, true);
                         }
                     }
-                    setCurrentView(nextView, entry.getKey());
                 }
             }
         }
     }
     
     public boolean isViewEnabled(String id) {
-        Boolean enabled = viewEnabled.get(id);
-        return enabled == null || enabled;
+        return catalog.isEnabled(id);
     }
     
     public JSONObject getCurrentView(String channel) {
-        if (channel == null) {
-            channel = "test";
+        ViewEntry entry = getCurrentViewEntry(channel);
+        return entry != null ? entry.toClientView() : null;
+    }
+    
+    /**
+     * The channel's current view with its cached serialized forms, or null if none.
+     */
+    ViewEntry getCurrentViewEntry(String channel) {
+        ChannelState state = channels.get(channelName(channel));
+        String viewId = state != null ? state.currentViewId : null;
+        return viewId != null ? catalog.views.get(viewId) : null;
+    }
+    
+    /**
+     * Names of the channels that show a view.
+     */
+    public Set<String> getActiveChannels() {
+        Set<String> names = new HashSet<>();
+        for (ChannelState state : channels.values()) {
+            if (state.currentViewId != null) {
+                names.add(state.name);
+            }
         }
-        
-        String viewId = channelCurrentViews.get(channel);
-        if (viewId == null || !views.containsKey(viewId)) {
-            return null;
+        return names;
+    }
+    
+    public long getChannelVersion(String channel) {
+        ChannelState state = channels.get(channelName(channel));
+        return state != null ? state.getVersion() : 0;
+    }
+    
+    /**
+     * Block until the channel's version differs from knownVersion or the timeout expires.
+     * Returns the channel's version at that point, or 0 at once for an unknown channel.
+     */
+    public long awaitChannelChange(String channel, long knownVersion, long timeoutMs) throws InterruptedException {
+        ChannelState state = channelState(channel);
+        return state != null ? state.awaitChange(knownVersion, timeoutMs) : 0;
+    }
+    
+    /**
+     * Subscribe to the channel's view changes. Returns the current view at the moment of
+     * subscribing (or null): taken under the channel lock, so every later change reaches
+     * the listener and none before it does. An unknown channel is not subscribed to.
+     */
+    public JSONObject addViewChangeListener(String channel, ViewChangeListener listener) {
+        while (true) {
+            ChannelState state = channelState(channel);
+            if (state == null) {
+                Log.w(TAG, "Not subscribing to unknown channel " + channel);
+                return null;
+            }
+            synchronized (state) {
+                if (channels.get(state.name) != state) {
+                    continue; // Dropped by removeChannel in the meantime
+                }
+                state.listeners.add(listener);
+                String viewId = state.currentViewId;
+                ViewEntry entry = viewId != null ? catalog.views.get(viewId) : null;
+                return entry != null ? entry.toClientView() : null;
+            }
         }
-        
-        JSONObject view = views.get(viewId);
-        if (view != null) {
+    }
+    
+    public void removeViewChangeListener(String channel, ViewChangeListener listener) {
+        ChannelState state = channels.get(channelName(channel));
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.listeners.remove(listener);
+            // The last subscriber of a deleted channel was all that kept its state
+            InternalChannelConfig config = channelConfig;
+            if (state.listeners.isEmpty() && state.currentViewId == null && config != null
+                    && !config.hasChannel(state.name)) {
+                channels.remove(state.name, state);
+            }
+        }
+    }
+    
+    private void notifyViewChangeListeners(ChannelState state, ViewEntry entry) {
+        if (state.listeners.isEmpty()) {
+            return;
+        }
+        JSONObject view = entry.toClientView();
+        for (ViewChangeListener listener : state.listeners) {
             try {
-                // Return the view object directly (it already has id, metadata, data)
-                // The view is stored with id, metadata, and data fields
-                JSONObject result = new JSONObject();
-                result.put("id", viewId);
-                // Copy all fields from the stored view (metadata, data, etc.)
-                java.util.Iterator<String> keys = view.keys();
-                while (keys.hasNext()) {
-                    String key = keys.next();
-                    result.put(key, view.get(key));
-                }
-                return result;
+                listener.onViewChanged(state.name, view);
             } catch (Exception e) {
-                Log.e(TAG, "Error creating view response: " + e.getMessage());
+                Log.e(TAG, "Error notifying view change listener: " + e.getMessage());
             }
         }
-        return null;
     }
     
     private InternalHttpServer server; // Reference to server for broadcasting
@@ -322,83 +978,115 @@ public class InternalViewManager {
     }
     
     public void setCurrentView(String viewId, String channel, boolean isManualTrigger) {
-        if (channel == null) {
-            channel = "test";
-        }
-        
-        if (viewId != null && !views.containsKey(viewId)) {
-            Log.w(TAG, "View not found: " + viewId);
+        ChannelState state = channelState(channel);
+        if (state == null) {
+            Log.w(TAG, "Channel not found: " + channel);
             return;
         }
-        
-        // Clear existing rotation for this channel
-        cancelRotation(channel);
-        
-        channelCurrentViews.put(channel, viewId);
-        if (viewId != null) {
-            viewActivationTime.put(channel, System.currentTimeMillis());
-            // Only mark as manually overridden if it's a manual trigger
-            if (isManualTrigger) {
-                Map<String, Long> overrides = manualOverrides.get(channel);
-                if (overrides == null) {
-                    overrides = new HashMap<>();
-                    manualOverrides.put(channel, overrides);
-                }
-                overrides.put(viewId, System.currentTimeMillis());
-                Log.d(TAG, "View " + viewId + " set as manual trigger on channel " + channel);
-            } else {
-                // Clear manual override for automatic rotation
-                Map<String, Long> overrides = manualOverrides.get(channel);
-                if (overrides != null) {
-                    overrides.remove(viewId);
-                    if (overrides.isEmpty()) {
-                        manualOverrides.remove(channel);
-                    }
-                }
-                Log.d(TAG, "View " + viewId + " set via automatic rotation on channel " + channel);
+        setCurrentView(viewId, state, isManualTrigger, true);
+    }
+    
+    private void setCurrentView(String viewId, ChannelState state, boolean isManualTrigger, boolean persist) {
+        synchronized (state) {
+            String channel = state.name;
+            
+            // Checked under the channel lock: a concurrent removeView either sees this
+            // view as current afterwards or has already published a catalogue without it
+            if (viewId != null && !catalog.views.containsKey(viewId)) {
+                Log.w(TAG, "View not found: " + viewId);
+                return;
             }
             
-            // Broadcast view change to SSE clients
+            // Clear existing rotation for this channel
+            cancelRotation(state);
+            
+            state.currentViewId = viewId;
+            state.bumpVersion();
+            if (viewId != null) {
+                long now = System.currentTimeMillis();
+                state.activatedAt = now;
+                // Only mark as manually overridden if it's a manual trigger
+                if (isManualTrigger) {
+                    state.manualOverrides.put(viewId, now);
+                    Log.d(TAG, "View " + viewId + " set as manual trigger on channel " + channel);
+                } else {
+                    // Clear manual override for automatic rotation
+                    state.manualOverrides.remove(viewId);
+                    Log.d(TAG, "View " + viewId + " set via automatic rotation on channel " + channel);
+                }
+            
+                broadcastCurrentView(state);
+            
+                // Schedule rotation for this view
+                scheduleViewRotation(viewId, state);
+            }
+            // Checkpoint the new current view (coalesced, not one write per rotation)
+            if (persist) {
+                markPlaybackDirty();
+            }
+            Log.d(TAG, "Set current view for channel " + channel + ": " + viewId);
+        }
+    }
+    
+    // Broadcast the channel's current view to SSE clients and in-process subscribers
+    private void broadcastCurrentView(ChannelState state) {
+        try {
+            String viewId = state.currentViewId;
+            ViewEntry entry = viewId != null ? catalog.views.get(viewId) : null;
+            if (entry != null) {
+                if (server != null) {
+                    // Cached frame: serialized once per view version, not per change
+                    server.broadcastFrameToChannel(state.name, entry.getViewChangeFrame());
+                }
+                notifyViewChangeListeners(state, entry);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error broadcasting view change: " + e.getMessage());
+        }
+    }
+    
+    // Send a patch of the channel's current view to SSE clients and in-process subscribers
+    private void broadcastViewUpdate(ChannelState state, String viewId, JSONObject patch) {
+        try {
             if (server != null) {
+                JSONObject message = new JSONObject();
+                message.put("type", "view_update");
+                message.put("id", viewId);
+                message.put("patch", patch);
+                server.broadcastToChannel(state.name, message);
+            }
+            for (ViewChangeListener listener : state.listeners) {
                 try {
-                    JSONObject currentView = getCurrentView(channel);
-                    if (currentView != null) {
-                        JSONObject message = new JSONObject();
-                        message.put("type", "view_change");
-                        message.put("view", currentView);
-                        server.broadcastToChannel(channel, message);
-                    }
+                    listener.onViewUpdated(state.name, viewId, patch);
                 } catch (Exception e) {
-                    Log.e(TAG, "Error broadcasting view change: " + e.getMessage());
+                    Log.e(TAG, "Error notifying view update listener: " + e.getMessage());
                 }
             }
-            
-            // Schedule rotation for this view
-            scheduleViewRotation(viewId, channel);
+        } catch (Exception e) {
+            Log.e(TAG, "Error broadcasting view update: " + e.getMessage());
         }
-        // Persist current view change
-        saveViews();
-        Log.d(TAG, "Set current view for channel " + channel + ": " + viewId);
     }
     
-    private void cancelRotation(String channel) {
-        Runnable existingRunnable = channelRotationRunnables.get(channel);
-        if (existingRunnable != null) {
-            rotationHandler.removeCallbacks(existingRunnable);
-            channelRotationRunnables.remove(channel);
-        }
+    private void cancelRotation(ChannelState state) {
+        rotationScheduler.cancel(state.name);
+    }
+    
+    private void scheduleViewRotation(String viewId, ChannelState state) {
+        scheduleViewRotation(viewId, state, 0);
     }
     
-    private void scheduleViewRotation(String viewId, String channel) {
-        if (viewId == null || channel == null) {
-            Log.d(TAG, "scheduleViewRotation: viewId or channel is null");
+    // alreadyElapsed shortens the first delay when resuming a view that was on screen before a restart.
+    // Call with the channel's lock held.
+    private void scheduleViewRotation(String viewId, final ChannelState state, long alreadyElapsed) {
+        if (viewId == null) {
+            Log.d(TAG, "scheduleViewRotation: viewId is null");
             return;
         }
+        String channel = state.name;
         
-        // Initialize handler if needed
-        initRotationHandler();
-        
-        JSONObject view = views.get(viewId);
+        Catalog snapshot = catalog;
+        ViewEntry entry = snapshot.views.get(viewId);
+        JSONObject view = entry != null ? entry.view : null;
         if (view == null) {
             Log.d(TAG, "scheduleViewRotation: view not found: " + viewId);
             return;
@@ -426,91 +1114,61 @@ public class InternalViewManager {
                 return;
             }
             
-            // Get channel views to determine available views for rotation
-            List<String> availableViews = new ArrayList<>();
-            if (channelConfig != null) {
-                JSONArray channelViews = channelConfig.getChannelViews(channel);
-                for (int i = 0; i < channelViews.length(); i++) {
-                    String id = channelViews.optString(i, null);
-                    if (id != null && views.containsKey(id)) {
-                        Boolean enabled = viewEnabled.get(id);
-                        if (enabled == null || enabled) {
-                            availableViews.add(id);
-                        }
-                    }
-                }
-            } else {
-                // Fallback: use all enabled views
-                for (String id : views.keySet()) {
-                    Boolean enabled = viewEnabled.get(id);
-                    if (enabled == null || enabled) {
-                        availableViews.add(id);
-                    }
-                }
-            }
-            
-            Log.d(TAG, "scheduleViewRotation: found " + availableViews.size() + " available views: " + availableViews);
-            
-            if (availableViews.size() <= 1) {
-                Log.w(TAG, "Not enough views for rotation (need >1, have " + availableViews.size() + "). Views in channel: " + availableViews);
+            // Check the channel has another view on schedule to rotate to; the schedule
+            // boundary wake-up re-runs this when a schedule opens one up
+            ChannelPlaylist playlist = getPlaylist(state);
+            String nextViewId = playlist.next(viewId, ViewSchedule.minuteOfWeek(System.currentTimeMillis()));
+            if (nextViewId == null || nextViewId.equals(viewId)) {
+                Log.w(TAG, "Not enough views for rotation on channel " + channel + " (" + playlist.size() + " in playlist)");
                 return;
             }
             
             // Create rotation runnable
             final String finalViewId = viewId;
-            final String finalChannel = channel;
-            final List<String> finalAvailableViews = availableViews;
             
             Runnable rotationRunnable = new Runnable() {
                 @Override
                 public void run() {
-                    // Check if this view is still the current view
-                    String currentViewId = channelCurrentViews.get(finalChannel);
-                    if (!finalViewId.equals(currentViewId)) {
-                        Log.d(TAG, "View changed, skipping rotation for " + finalViewId);
-                        return;
-                    }
-                    
-                    // Check if view is manually overridden
-                    Map<String, Long> overrides = manualOverrides.get(finalChannel);
-                    boolean isManuallyOverridden = overrides != null && overrides.containsKey(finalViewId);
-                    
-                    if (isManuallyOverridden) {
-                        // View is manually overridden - reschedule rotation to check again later
-                        Log.d(TAG, "View " + finalViewId + " is manually overridden - rescheduling rotation");
-                        scheduleViewRotation(finalViewId, finalChannel);
-                        return;
-                    }
-                    
-                    // Find next view
-                    int currentIndex = finalAvailableViews.indexOf(finalViewId);
-                    if (currentIndex < 0) {
-                        currentIndex = 0;
-                    }
-                    int nextIndex = (currentIndex + 1) % finalAvailableViews.size();
-                    String nextViewId = finalAvailableViews.get(nextIndex);
-                    
-                    Log.d(TAG, "Rotating from " + finalViewId + " to " + nextViewId + " on channel " + finalChannel);
-                    
-                    // Clear manual override for the new view (it's automatic rotation)
-                    if (overrides != null) {
-                        overrides.remove(finalViewId);
-                        if (overrides.isEmpty()) {
-                            manualOverrides.remove(finalChannel);
+                    // Only this channel is locked; other channels keep rotating
+                    synchronized (state) {
+                        // A newer schedule or cancelRotation replaced this runnable while it waited
+                        if (!rotationScheduler.isScheduled(state.name, this)) {
+                            return;
+                        }
+                        
+                        // Check if this view is still the current view
+                        if (!finalViewId.equals(state.currentViewId)) {
+                            Log.d(TAG, "View changed, skipping rotation for " + finalViewId);
+                            return;
+                        }
+                        
+                        // Check if view is manually overridden
+                        if (state.manualOverrides.containsKey(finalViewId)) {
+                            // View is manually overridden - reschedule rotation to check again later
+                            Log.d(TAG, "View " + finalViewId + " is manually overridden - rescheduling rotation");
+                            scheduleViewRotation(finalViewId, state);
+                            return;
                         }
+                        
+                        // Find next view among those on schedule now, not when this was scheduled
+                        String nextViewId = pickNextView(state, finalViewId);
+                        if (nextViewId == null || nextViewId.equals(finalViewId)) {
+                            // Its weight keeps it on, or everything else is off schedule or capped
+                            Log.d(TAG, "Keeping " + finalViewId + " on channel " + state.name + " for another rotation");
+                            scheduleViewRotation(finalViewId, state);
+                            return;
+                        }
+                        
+                        Log.d(TAG, "Rotating from " + finalViewId + " to " + nextViewId + " on channel " + state.name);
+                        
+                        // Set next view via automatic rotation (this will schedule its own rotation)
+                        setCurrentView(nextViewId, state, false, true); // false = automatic rotation
                     }
-                    
-                    // Set next view via automatic rotation (this will schedule its own rotation)
-                    setCurrentView(nextViewId, finalChannel, false); // false = automatic rotation
                 }
             };
             
-            // Cancel any existing rotation
-            cancelRotation(channel);
-            
-            // Schedule new rotation
-            channelRotationRunnables.put(channel, rotationRunnable);
-            rotationHandler.postDelayed(rotationRunnable, delay);
+            // Schedule new rotation, replacing any pending one for this channel
+            rotationScheduler.schedule(channel, Math.max(0, delay - alreadyElapsed), rotationRunnable);
             
             Log.d(TAG, "Scheduled rotation for view " + viewId + " on channel " + channel + " after " + delay + "ms");
         } catch (Exception e) {
@@ -518,75 +1176,182 @@ public class InternalViewManager {
         }
     }
     
-    public void nextView(String channel) {
-        if (channel == null) {
-            channel = "test";
+    // The channel's rotation order, built from its configured views on first use and then
+    // kept current by updatePlaylists and the channel config listener. Call with the
+    // channel's lock held.
+    private ChannelPlaylist getPlaylist(ChannelState state) {
+        InternalChannelConfig config = channelConfig;
+        if (config == null) {
+            // Fallback: use all enabled views
+            return catalog.getAllViewsPlaylist();
         }
-        
-        // Only include enabled views
-        List<String> viewList = new ArrayList<>();
-        for (String id : views.keySet()) {
-            Boolean enabled = viewEnabled.get(id);
-            if (enabled == null || enabled) {
-                viewList.add(id);
+        if (state.playlist == null) {
+            Catalog snapshot = catalog;
+            JSONArray channelViews = config.getChannelViews(state.name);
+            Set<String> members = new LinkedHashSet<>();
+            List<ViewEntry> playable = new ArrayList<>();
+            for (int i = 0; channelViews != null && i < channelViews.length(); i++) {
+                String id = channelViews.optString(i, null);
+                if (id != null && members.add(id)) {
+                    ViewEntry entry = snapshot.views.get(id);
+                    if (entry != null && snapshot.isEnabled(id)) {
+                        playable.add(entry);
+                    }
+                }
             }
+            state.playlist = new ChannelPlaylist(members, playable);
         }
-        
-        if (viewList.isEmpty()) {
-            return;
+        return state.playlist;
+    }
+    
+    // Manual navigation falls back to every enabled view while the channel has none of its own
+    private ChannelPlaylist getNavigationPlaylist(ChannelState state) {
+        ChannelPlaylist playlist = getPlaylist(state);
+        return playlist.isEmpty() ? catalog.getAllViewsPlaylist() : playlist;
+    }
+    
+    // Reflect one view's current entry and enabled flag in every built playlist. Called
+    // under writeLock after the new catalogue is published.
+    private void updatePlaylists(String id) {
+        Catalog snapshot = catalog;
+        ViewEntry viewEntry = snapshot.isEnabled(id) ? snapshot.views.get(id) : null;
+        for (ChannelState state : channels.values()) {
+            synchronized (state) {
+                if (state.playlist != null) {
+                    state.playlist = state.playlist.withView(id, viewEntry);
+                }
+            }
         }
-        
-        String currentViewId = channelCurrentViews.get(channel);
-        int currentIndex = currentViewId != null ? viewList.indexOf(currentViewId) : -1;
-        int nextIndex = (currentIndex + 1) % viewList.size();
-        setCurrentView(viewList.get(nextIndex), channel);
     }
     
-    public void previousView(String channel) {
-        if (channel == null) {
-            channel = "test";
+    // The next view for automatic rotation (weights, priority interrupts and caps); the
+    // current view if it stays on, or null if nothing can play. Call with the channel's lock held.
+    private String pickNextView(ChannelState state, String currentId) {
+        long now = System.currentTimeMillis();
+        return state.engine.next(getPlaylist(state), currentId, ViewSchedule.minuteOfWeek(now), now);
+    }
+    
+    // Wake the rotation thread at the next minute any view's schedule opens or closes.
+    // Called whenever the catalogue changes and after every wake-up.
+    private void scheduleNextScheduleBoundary() {
+        // Serialized so a wake-up computed from an older catalogue cannot land last
+        synchronized (scheduleBoundaryLock) {
+            long now = System.currentTimeMillis();
+            int minuteOfWeek = ViewSchedule.minuteOfWeek(now);
+            int minutesAhead = -1;
+            for (ViewEntry entry : catalog.views.values()) {
+                if (entry.schedule != null) {
+                    int minutes = entry.schedule.minutesUntilChange(minuteOfWeek);
+                    if (minutes > 0 && (minutesAhead < 0 || minutes < minutesAhead)) {
+                        minutesAhead = minutes;
+                    }
+                }
+            }
+            if (minutesAhead < 0) {
+                rotationScheduler.cancel(SCHEDULE_BOUNDARY_KEY);
+                return;
+            }
+            
+            rotationScheduler.schedule(SCHEDULE_BOUNDARY_KEY,
+                ViewSchedule.millisUntilMinute(now, Math.min(minutesAhead, MAX_SCHEDULE_WAKE_MINUTES)),
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        if (rotationScheduler.isScheduled(SCHEDULE_BOUNDARY_KEY, this)) {
+                            applyScheduleBoundary();
+                        }
+                    }
+                });
         }
-        
-        // Only include enabled views
-        List<String> viewList = new ArrayList<>();
-        for (String id : views.keySet()) {
-            Boolean enabled = viewEnabled.get(id);
-            if (enabled == null || enabled) {
-                viewList.add(id);
+    }
+    
+    // Swap out current views whose schedule just closed (unless manually chosen) and start
+    // rotation on channels that now have something to rotate to. Each channel is handled
+    // under its own lock.
+    private void applyScheduleBoundary() {
+        int minuteOfWeek = ViewSchedule.minuteOfWeek(System.currentTimeMillis());
+        for (ChannelState state : channels.values()) {
+            synchronized (state) {
+                String currentId = state.currentViewId;
+                ViewEntry current = currentId != null ? catalog.views.get(currentId) : null;
+                if (current == null) {
+                    continue;
+                }
+                if (!current.isScheduledAt(minuteOfWeek) && !state.manualOverrides.containsKey(currentId)) {
+                    String nextViewId = pickNextView(state, currentId);
+                    if (nextViewId != null && !nextViewId.equals(currentId)) {
+                        Log.d(TAG, "View " + currentId + " is off schedule, switching channel " + state.name);
+                        setCurrentView(nextViewId, state, false, true);
+                    }
+                } else if (!rotationScheduler.isPending(state.name)) {
+                    scheduleViewRotation(currentId, state);
+                }
             }
         }
-        
-        if (viewList.isEmpty()) {
+        scheduleNextScheduleBoundary();
+    }
+    
+    public void nextView(String channel) {
+        ChannelState state = channelState(channel);
+        if (state == null) {
             return;
         }
-        
-        String currentViewId = channelCurrentViews.get(channel);
-        int currentIndex = currentViewId != null ? viewList.indexOf(currentViewId) : -1;
-        int nextIndex = currentIndex <= 0 ? viewList.size() - 1 : currentIndex - 1;
-        setCurrentView(viewList.get(nextIndex), channel);
+        synchronized (state) {
+            // Step through the channel's enabled, on-schedule views in configured order
+            String viewId = getNavigationPlaylist(state).next(state.currentViewId,
+                ViewSchedule.minuteOfWeek(System.currentTimeMillis()));
+            if (viewId != null) {
+                setCurrentView(viewId, state, true, true);
+            }
+        }
     }
     
-    public boolean isManuallyOverridden(String viewId, String channel) {
-        if (channel == null) {
-            channel = "test";
+    public void previousView(String channel) {
+        ChannelState state = channelState(channel);
+        if (state == null) {
+            return;
         }
-        Map<String, Long> overrides = manualOverrides.get(channel);
-        return overrides != null && overrides.containsKey(viewId);
+        synchronized (state) {
+            // Step through the channel's enabled, on-schedule views in configured order
+            String viewId = getNavigationPlaylist(state).previous(state.currentViewId,
+                ViewSchedule.minuteOfWeek(System.currentTimeMillis()));
+            if (viewId != null) {
+                setCurrentView(viewId, state, true, true);
+            }
+        }
+    }
+    
+    public boolean isManuallyOverridden(String viewId, String channel) {
+        ChannelState state = channels.get(channelName(channel));
+        return state != null && state.manualOverrides.containsKey(viewId);
     }
     
     public void clearManualOverride(String channel) {
-        if (channel == null) {
-            channel = "test";
+        ChannelState state = channels.get(channelName(channel));
+        if (state != null) {
+            state.manualOverrides.clear();
+            markPlaybackDirty();
         }
-        manualOverrides.remove(channel);
+    }
+    
+    /**
+     * Rotation scheduler counters, including how late rotations fire (drift).
+     */
+    public JSONObject getRotationStats() {
+        JSONObject stats = rotationScheduler.getStats();
+        try {
+            stats.put("channels", channels.size());
+        } catch (JSONException e) {
+            Log.e(TAG, "Error building rotation stats: " + e.getMessage());
+        }
+        return stats;
     }
     
     public boolean hasViews() {
-        return !views.isEmpty();
+        return !catalog.views.isEmpty();
     }
     
     public int getViewCount() {
-        return views.size();
+        return catalog.views.size();
     }
 }
-
@@ -0,0 +1,130 @@
+package com.redisplay.app.server;
+
+import android.util.Log;
+import org.json.JSONObject;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind checkpoint of InternalViewManager's playback state (current view,
+ * activation time and manual overrides per channel).
+ *
+ * This state changes on every rotation, so it is kept out of the view journal. Changes
+ * only mark the checkpoint dirty; at most one write happens per interval, plus an
+ * explicit flush when the app pauses. Each write replaces the small state file through
+ * a temp file and rename.
+ */
+class PlaybackCheckpoint {
+    private static final String TAG = "PlaybackCheckpoint";
+    private static final String STATE_FILE = "playback_state.json";
+    private static final String TEMP_FILE = "playback_state.json.tmp";
+
+    /**
+     * Supplies the state to write when a checkpoint is due.
+     */
+    interface Source {
+        JSONObject snapshotPlaybackState();
+    }
+
+    private final File stateFile;
+    private final File tempFile;
+    private final long intervalMs;
+    private final Source source;
+    private final ScheduledExecutorService executor;
+    private boolean flushScheduled; // guarded by this
+    private boolean dirty; // guarded by this
+    private final Object writeLock = new Object();
+
+    PlaybackCheckpoint(File directory, long intervalMs, Source source) {
+        this.stateFile = new File(directory, STATE_FILE);
+        this.tempFile = new File(directory, TEMP_FILE);
+        this.intervalMs = intervalMs;
+        this.source = source;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "playback-checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Read the last checkpoint, or null if there is none.
+     */
+    JSONObject load() {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        try {
+            FileInputStream in = new FileInputStream(stateFile);
+            return new JSONObject(new String(StaticAsset.readFully(in), "UTF-8"));
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading playback state: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Record that the state changed. The write happens at most once per interval.
+     */
+    synchronized void markDirty() {
+        dirty = true;
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (PlaybackCheckpoint.this) {
+                    flushScheduled = false;
+                }
+                flush();
+            }
+        }, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write the state now if it changed since the last write.
+     */
+    void flush() {
+        // Snapshot and write under one lock so an older snapshot never lands last
+        synchronized (writeLock) {
+            synchronized (this) {
+                if (!dirty) {
+                    return;
+                }
+                dirty = false;
+            }
+            try {
+                write(source.snapshotPlaybackState());
+            } catch (Exception e) {
+                Log.e(TAG, "Error writing playback state: " + e.getMessage());
+                // Try again on the next interval
+                markDirty();
+            }
+        }
+    }
+
+    private void write(JSONObject state) throws IOException {
+        FileOutputStream out = new FileOutputStream(tempFile, false);
+        try {
+            out.write(state.toString().getBytes("UTF-8"));
+            out.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(stateFile)) {
+            throw new IOException("Could not replace playback state file");
+        }
+    }
+}
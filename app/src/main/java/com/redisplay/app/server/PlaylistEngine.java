@@ -0,0 +1,107 @@
+package com.redisplay.app.server;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chooses a channel's next view for automatic rotation.
+ *
+ * Regular views play in the order of the playlist's weighted sequence, resuming after
+ * whichever sequence view is current. Priority views (metadata.priority above 0)
+ * interrupt it: after each regular view, the highest priority view that is on schedule
+ * and under its frequency cap plays next. Views with metadata.maxPerHour are skipped
+ * once they were picked that many times in the last hour.
+ *
+ * One engine per channel; not thread-safe, InternalViewManager calls it under the
+ * channel's lock.
+ */
+final class PlaylistEngine {
+    private static final long CAP_WINDOW_MS = 60 * 60 * 1000L;
+
+    private ChannelPlaylist anchoredPlaylist; // Playlist the cursor refers to
+    private int cursor = -1; // Slot in the weighted sequence of the last regular view
+    private boolean lastWasInterrupt;
+    private final Map<String, ArrayDeque<Long>> recentPicks = new HashMap<>(); // Capped viewId -> pick times, oldest first
+
+    /**
+     * The view to rotate to from currentId, or null if no view can play now. Returns
+     * currentId when its weight gives it consecutive slots and it should stay on.
+     */
+    String next(ChannelPlaylist playlist, String currentId, int minuteOfWeek, long now) {
+        int currentSlot = playlist.firstSlotOf(currentId);
+        if (playlist != anchoredPlaylist) {
+            // Rebuilt playlist: slots moved, so re-anchor on the current view
+            anchoredPlaylist = playlist;
+            cursor = currentSlot;
+        } else if (currentSlot >= 0 && (cursor < 0 || !playlist.sequenceEntry(cursor).id.equals(currentId))) {
+            // Someone else chose a regular view; continue from it
+            cursor = currentSlot;
+        }
+
+        if (!lastWasInterrupt) {
+            ViewEntry interrupt = pickInterrupt(playlist, currentId, minuteOfWeek, now);
+            if (interrupt != null) {
+                lastWasInterrupt = true;
+                return picked(interrupt, now);
+            }
+        }
+
+        int length = playlist.sequenceLength();
+        for (int i = 1; i <= length; i++) {
+            int slot = (cursor + i) % length;
+            if (slot < 0) {
+                slot += length;
+            }
+            ViewEntry entry = playlist.sequenceEntry(slot);
+            if (canPlay(entry, minuteOfWeek, now)) {
+                cursor = slot;
+                lastWasInterrupt = false;
+                return picked(entry, now);
+            }
+        }
+
+        // No regular view can play; another interrupt is better than standing still
+        ViewEntry interrupt = pickInterrupt(playlist, currentId, minuteOfWeek, now);
+        return interrupt != null ? picked(interrupt, now) : null;
+    }
+
+    private ViewEntry pickInterrupt(ChannelPlaylist playlist, String currentId, int minuteOfWeek, long now) {
+        for (int i = 0; i < playlist.interruptCount(); i++) {
+            ViewEntry entry = playlist.interruptEntry(i);
+            if (!entry.id.equals(currentId) && canPlay(entry, minuteOfWeek, now)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private boolean canPlay(ViewEntry entry, int minuteOfWeek, long now) {
+        if (!entry.isScheduledAt(minuteOfWeek)) {
+            return false;
+        }
+        if (entry.maxPerHour == 0) {
+            return true;
+        }
+        ArrayDeque<Long> picks = recentPicks.get(entry.id);
+        if (picks == null) {
+            return true;
+        }
+        while (!picks.isEmpty() && now - picks.peekFirst() >= CAP_WINDOW_MS) {
+            picks.pollFirst();
+        }
+        return picks.size() < entry.maxPerHour;
+    }
+
+    private String picked(ViewEntry entry, long now) {
+        if (entry.maxPerHour > 0) {
+            ArrayDeque<Long> picks = recentPicks.get(entry.id);
+            if (picks == null) {
+                picks = new ArrayDeque<>();
+                recentPicks.put(entry.id, picks);
+            }
+            picks.addLast(now);
+        }
+        return entry.id;
+    }
+}
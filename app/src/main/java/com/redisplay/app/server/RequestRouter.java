@@ -0,0 +1,201 @@
+package com.redisplay.app.server;
+
+import fi.iki.elonen.NanoHTTPD.IHTTPSession;
+import fi.iki.elonen.NanoHTTPD.Response;
+import org.json.JSONObject;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table-driven request router for InternalHttpServer.
+ *
+ * Routes are registered once at startup as method + path template, e.g.
+ * "/api/channels/{channel}/tap". Templates are compiled into a segment trie, so
+ * matching walks the request path once and never compiles or runs a regex.
+ * Literal segments win over {param} segments at the same position.
+ */
+public class RequestRouter {
+
+    public interface Handler {
+        Response handle(IHTTPSession session, Map<String, String> params) throws Exception;
+    }
+
+    public static class Route {
+        final String method;
+        final String template;
+        final String[] paramNames;
+        final Handler handler;
+        final AtomicLong requestCount = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+
+        Route(String method, String template, String[] paramNames, Handler handler) {
+            this.method = method;
+            this.template = template;
+            this.paramNames = paramNames;
+            this.handler = handler;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public Handler getHandler() {
+            return handler;
+        }
+
+        public void record(long elapsedNanos) {
+            requestCount.incrementAndGet();
+            totalNanos.addAndGet(elapsedNanos);
+        }
+    }
+
+    /**
+     * Result of a lookup. Holds the route (null if nothing matched the method) and
+     * the values of the template's {param} segments.
+     */
+    public static class Match {
+        final Route route;
+        final Map<String, String> params;
+        final boolean pathMatched;
+
+        Match(Route route, Map<String, String> params, boolean pathMatched) {
+            this.route = route;
+            this.params = params;
+            this.pathMatched = pathMatched;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        public Map<String, String> getParams() {
+            return params;
+        }
+
+        /**
+         * True if some route exists for this path under a different method.
+         */
+        public boolean isPathMatched() {
+            return pathMatched;
+        }
+    }
+
+    private static class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        Node param; // Child matching any single segment
+        final Map<String, Route> routes = new HashMap<>(); // method -> route
+    }
+
+    private final Node root = new Node();
+    private final List<Route> allRoutes = new ArrayList<>();
+
+    public RequestRouter add(String method, String template, Handler handler) {
+        List<String> segments = splitPath(template);
+        List<String> paramNames = new ArrayList<>();
+        Node node = root;
+        for (String segment : segments) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                paramNames.add(segment.substring(1, segment.length() - 1));
+                if (node.param == null) {
+                    node.param = new Node();
+                }
+                node = node.param;
+            } else {
+                Node child = node.literals.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.literals.put(segment, child);
+                }
+                node = child;
+            }
+        }
+        if (node.routes.containsKey(method)) {
+            throw new IllegalArgumentException("Duplicate route: " + method + " " + template);
+        }
+        Route route = new Route(method, template, paramNames.toArray(new String[0]), handler);
+        node.routes.put(method, route);
+        allRoutes.add(route);
+        return this;
+    }
+
+    /**
+     * Find the route for a request. Returns null if no template matches the path.
+     */
+    public Match match(String method, String path) {
+        List<String> segments = splitPath(path);
+        String[] captured = new String[segments.size()];
+        Node node = find(root, segments, 0, captured, 0);
+        if (node == null) {
+            return null;
+        }
+        Route route = node.routes.get(method);
+        if (route == null) {
+            return new Match(null, Collections.<String, String>emptyMap(), true);
+        }
+        Map<String, String> params;
+        if (route.paramNames.length == 0) {
+            params = Collections.emptyMap();
+        } else {
+            params = new HashMap<>();
+            for (int i = 0; i < route.paramNames.length; i++) {
+                params.put(route.paramNames[i], captured[i]);
+            }
+        }
+        return new Match(route, params, true);
+    }
+
+    private Node find(Node node, List<String> segments, int index, String[] captured, int capturedCount) {
+        if (index == segments.size()) {
+            return node.routes.isEmpty() ? null : node;
+        }
+        String segment = segments.get(index);
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            Node found = find(literal, segments, index + 1, captured, capturedCount);
+            if (found != null) {
+                return found;
+            }
+        }
+        if (node.param != null) {
+            captured[capturedCount] = segment;
+            return find(node.param, segments, index + 1, captured, capturedCount + 1);
+        }
+        return null;
+    }
+
+    // Split "/a/b/c" into [a, b, c] in a single pass, ignoring empty segments
+    private static List<String> splitPath(String path) {
+        List<String> segments = new ArrayList<>(8);
+        int length = path.length();
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || path.charAt(i) == '/') {
+                if (i > start) {
+                    segments.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        for (Route route : allRoutes) {
+            try {
+                long count = route.requestCount.get();
+                JSONObject routeStats = new JSONObject();
+                routeStats.put("requests", count);
+                routeStats.put("avgMicros", count > 0 ? route.totalNanos.get() / count / 1000 : 0);
+                stats.put(route.method + " " + route.template, routeStats);
+            } catch (Exception e) {
+                // Skip routes that cannot be serialized
+            }
+        }
+        return stats;
+    }
+}
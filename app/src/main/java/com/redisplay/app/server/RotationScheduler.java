@@ -0,0 +1,138 @@
+package com.redisplay.app.server;
+
+import android.util.Log;
+import org.json.JSONObject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns every channel's rotation deadline on one dedicated thread, so rotations never
+ * run on the UI thread.
+ *
+ * Each channel has at most one pending task. Rescheduling or cancelling only flags the
+ * previous task as cancelled (O(1)); the executor discards it when it comes due. Each
+ * firing records its drift - how late it ran compared to the deadline it was given.
+ */
+class RotationScheduler {
+    private static final String TAG = "RotationScheduler";
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, Slot> slots = new HashMap<>(); // guarded by this
+
+    private final AtomicLong fired = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong totalDriftNanos = new AtomicLong();
+    private final AtomicLong maxDriftNanos = new AtomicLong();
+
+    private static class Slot {
+        final Runnable task;
+        final long dueNanos;
+        ScheduledFuture<?> future;
+        boolean running; // guarded by the scheduler
+
+        Slot(Runnable task, long dueNanos) {
+            this.task = task;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    RotationScheduler() {
+        executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "view-rotation");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Run task for key after delayMs, replacing any task pending for key.
+     */
+    synchronized void schedule(final String key, long delayMs, Runnable task) {
+        cancel(key);
+        final Slot slot = new Slot(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+        slots.put(key, slot);
+        slot.future = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fire(key, slot);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void cancel(String key) {
+        Slot slot = slots.remove(key);
+        if (slot != null && !slot.running) {
+            slot.future.cancel(false);
+            cancelled.incrementAndGet();
+        }
+    }
+
+    /**
+     * True while task is the live (not replaced or cancelled) task for key. A task can
+     * check this once it holds its own locks, to ignore a firing that lost a race.
+     */
+    synchronized boolean isScheduled(String key, Runnable task) {
+        Slot slot = slots.get(key);
+        return slot != null && slot.task == task;
+    }
+
+    synchronized boolean isPending(String key) {
+        return slots.containsKey(key);
+    }
+
+    private void fire(String key, Slot slot) {
+        synchronized (this) {
+            if (slots.get(key) != slot) {
+                return;
+            }
+            slot.running = true;
+        }
+        recordDrift(System.nanoTime() - slot.dueNanos);
+        try {
+            slot.task.run();
+        } catch (Exception e) {
+            Log.e(TAG, "Rotation task for " + key + " failed: " + e.getMessage(), e);
+        } finally {
+            synchronized (this) {
+                // Unless the task scheduled its successor, the slot is done
+                if (slots.get(key) == slot) {
+                    slots.remove(key);
+                }
+            }
+        }
+    }
+
+    private void recordDrift(long driftNanos) {
+        fired.incrementAndGet();
+        totalDriftNanos.addAndGet(Math.max(0, driftNanos));
+        long max = maxDriftNanos.get();
+        while (driftNanos > max && !maxDriftNanos.compareAndSet(max, driftNanos)) {
+            max = maxDriftNanos.get();
+        }
+    }
+
+    public JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            long count = fired.get();
+            synchronized (this) {
+                stats.put("pending", slots.size());
+            }
+            stats.put("fired", count);
+            stats.put("cancelled", cancelled.get());
+            stats.put("avgDriftMicros", count > 0 ? totalDriftNanos.get() / count / 1000 : 0);
+            stats.put("maxDriftMicros", maxDriftNanos.get() / 1000);
+        } catch (Exception e) {
+            Log.e(TAG, "Error building rotation stats: " + e.getMessage());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,98 @@
+package com.redisplay.app.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most recent events broadcast on one SSE channel, numbered so a reconnecting
+ * display can send Last-Event-ID and receive only what it missed.
+ *
+ * Ids are "<server epoch>-<sequence>", so an id from before a restart never matches.
+ * The log keeps at most maxEvents events and maxBytes of frames; a client that missed
+ * more than that gets the current view again instead. Not thread-safe: the server holds
+ * the log's lock across append and fan-out, and across replay and registering a client,
+ * so every client sees each event exactly once.
+ */
+final class SseEventLog {
+    private final String idPrefix;
+    private final int maxEvents;
+    private final long maxBytes;
+    private final byte[][] frames; // Ring of framed events, oldest at head
+    private int head;
+    private int size;
+    private long bytes;
+    private long lastSequence; // Sequence of the newest event, 0 before the first
+
+    SseEventLog(String epoch, int maxEvents, long maxBytes) {
+        this.idPrefix = epoch + "-";
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+        this.frames = new byte[maxEvents][];
+    }
+
+    /**
+     * Number the frame ("data: ...\n\n") as the next event and return it with its id line.
+     */
+    byte[] append(byte[] frame) {
+        lastSequence++;
+        byte[] framed = withId(lastSequence, frame);
+        if (size == maxEvents) {
+            drop();
+        }
+        frames[(head + size) % maxEvents] = framed;
+        size++;
+        bytes += framed.length;
+        while (size > 1 && bytes > maxBytes) {
+            drop();
+        }
+        return framed;
+    }
+
+    /**
+     * The frame carrying the id of the newest event, for the first frame a client gets
+     * (the current view), so it resumes from there.
+     */
+    byte[] withLastId(byte[] frame) {
+        return withId(lastSequence, frame);
+    }
+
+    /**
+     * Events after lastEventId, oldest first; empty if the client is up to date. Null if
+     * the id is not from this log or events after it were already dropped.
+     */
+    List<byte[]> eventsAfter(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(idPrefix)) {
+            return null;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(lastEventId.substring(idPrefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long oldest = lastSequence - size + 1;
+        if (sequence > lastSequence || sequence < oldest - 1) {
+            return null;
+        }
+        List<byte[]> missed = new ArrayList<>((int) (lastSequence - sequence));
+        for (long s = sequence + 1; s <= lastSequence; s++) {
+            missed.add(frames[(int) ((head + (s - oldest)) % maxEvents)]);
+        }
+        return missed;
+    }
+
+    private void drop() {
+        bytes -= frames[head].length;
+        frames[head] = null;
+        head = (head + 1) % maxEvents;
+        size--;
+    }
+
+    private byte[] withId(long sequence, byte[] frame) {
+        byte[] idLine = ViewEntry.utf8("id: " + idPrefix + sequence + "\n");
+        byte[] framed = new byte[idLine.length + frame.length];
+        System.arraycopy(idLine, 0, framed, 0, idLine.length);
+        System.arraycopy(frame, 0, framed, idLine.length, frame.length);
+        return framed;
+    }
+}
@@ -0,0 +1,69 @@
+package com.redisplay.app.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, fully-built response body served by InternalHttpServer.
+ *
+ * Holds the identity bytes, a precomputed gzip variant and a strong ETag derived
+ * from the content, so serving it costs no asset I/O, templating or compression.
+ */
+class StaticAsset {
+    final String mimeType;
+    final byte[] body;
+    final byte[] gzipBody;
+    final String etag;
+
+    private StaticAsset(String mimeType, byte[] body, byte[] gzipBody, String etag) {
+        this.mimeType = mimeType;
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.etag = etag;
+    }
+
+    static StaticAsset fromBytes(String mimeType, byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 3 + 64);
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        gzip.write(body);
+        gzip.close();
+        return new StaticAsset(mimeType, body, compressed.toByteArray(), "\"" + contentHash(body) + "\"");
+    }
+
+    static StaticAsset fromString(String mimeType, String body) throws IOException {
+        return fromBytes(mimeType, body.getBytes("UTF-8"));
+    }
+
+    // Read a stream to the end (InputStream.available() is only an estimate)
+    static byte[] readFully(InputStream inputStream) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static String contentHash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(body);
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16));
+                hex.append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            // SHA-1 is always available on Android; fall back to a weaker hash just in case
+            return Integer.toHexString(java.util.Arrays.hashCode(body)) + "-" + body.length;
+        }
+    }
+}
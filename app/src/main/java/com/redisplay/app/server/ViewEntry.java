@@ -0,0 +1,130 @@
+package com.redisplay.app.server;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * A published view with its version and lazily built serialized forms.
+ *
+ * Entries are immutable: every mutation of a view replaces its entry with one carrying
+ * a higher version, which is what invalidates the cached bytes. The caches are filled
+ * on first use; two threads racing to fill one just build identical bytes.
+ */
+final class ViewEntry {
+    private static final byte[] VIEW_CHANGE_PREFIX = utf8("data: {\"type\":\"view_change\",\"view\":");
+    private static final byte[] INITIAL_VIEW_PREFIX = utf8("data: {\"type\":\"initial_view\",\"view\":");
+    private static final byte[] FRAME_SUFFIX = utf8("}\n\n");
+
+    final String id;
+    final JSONObject view;
+    final long version;
+    final ViewSchedule schedule; // null if the view is always eligible
+    final int weight; // metadata.weight: relative share of its channels' rotation, 1-100
+    final int priority; // metadata.priority: above 0 the view interrupts rotation, highest first
+    final int maxPerHour; // metadata.maxPerHour: cap on automatic activations per rolling hour, 0 for none
+
+    private volatile byte[] json;
+    private volatile byte[] viewChangeFrame;
+    private volatile byte[] initialViewFrame;
+
+    ViewEntry(String id, JSONObject view, long version) {
+        this.id = id;
+        this.view = view;
+        this.version = version;
+        JSONObject metadata = view.optJSONObject("metadata");
+        this.schedule = ViewSchedule.fromMetadata(metadata);
+        this.weight = metadata != null ? Math.max(1, Math.min(100, metadata.optInt("weight", 1))) : 1;
+        this.priority = metadata != null ? Math.max(0, metadata.optInt("priority", 0)) : 0;
+        this.maxPerHour = metadata != null ? Math.max(0, metadata.optInt("maxPerHour", 0)) : 0;
+    }
+
+    /**
+     * Whether the view's schedule allows it to play at the given minute of the week.
+     */
+    boolean isScheduledAt(int minuteOfWeek) {
+        return schedule == null || schedule.isActive(minuteOfWeek);
+    }
+
+    /**
+     * The view as served to clients (always including its id), as UTF-8 JSON.
+     */
+    byte[] getJson() {
+        byte[] bytes = json;
+        if (bytes == null) {
+            bytes = utf8(toClientView().toString());
+            json = bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * SSE frame announcing this view as a channel's new current view.
+     */
+    byte[] getViewChangeFrame() {
+        byte[] frame = viewChangeFrame;
+        if (frame == null) {
+            frame = concat(VIEW_CHANGE_PREFIX, getJson(), FRAME_SUFFIX);
+            viewChangeFrame = frame;
+        }
+        return frame;
+    }
+
+    /**
+     * SSE frame sent first on a new stream whose channel shows this view.
+     */
+    byte[] getInitialViewFrame() {
+        byte[] frame = initialViewFrame;
+        if (frame == null) {
+            frame = concat(INITIAL_VIEW_PREFIX, getJson(), FRAME_SUFFIX);
+            initialViewFrame = frame;
+        }
+        return frame;
+    }
+
+    /**
+     * A new top-level copy of the view with its id. Nested objects are shared with
+     * the stored view and must not be modified.
+     */
+    JSONObject toClientView() {
+        try {
+            JSONObject result = new JSONObject();
+            result.put("id", id);
+            // Copy all fields from the stored view (metadata, data, etc.)
+            Iterator<String> keys = view.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!"id".equals(key)) {
+                    result.put(key, view.get(key));
+                }
+            }
+            return result;
+        } catch (JSONException e) {
+            // Keys come from the view itself, so this cannot happen
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] utf8(String value) {
+        try {
+            return value.getBytes("UTF-8");
+        } catch (IOException e) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.redisplay.app.server;
+
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+
+/**
+ * A view's metadata.schedule compiled into the minutes of the week at which it turns
+ * on or off.
+ *
+ * The schedule format is the one ConfigActivity displays:
+ * {"days": ["mon", ...], "hours": [{"from": "08:00", "to": "09:00"}, ...]}, where
+ * hours may also be a single range object and a range whose end is not after its
+ * start runs past midnight. Missing days or hours mean every day or all day.
+ * Compiling costs one pass over the week's minutes; afterwards isActive and
+ * minutesUntilChange are binary searches over the change points.
+ */
+final class ViewSchedule {
+    private static final String TAG = "ViewSchedule";
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    private static final String[] DAY_NAMES = {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
+
+    private final boolean activeAtWeekStart;
+    private final int[] changes; // Sorted minutes in (0, MINUTES_PER_WEEK) where the state flips
+
+    private ViewSchedule(boolean activeAtWeekStart, int[] changes) {
+        this.activeAtWeekStart = activeAtWeekStart;
+        this.changes = changes;
+    }
+
+    /**
+     * Compile metadata.schedule, or return null if the view has no schedule (or an
+     * invalid one), meaning it is always eligible.
+     */
+    static ViewSchedule fromMetadata(JSONObject metadata) {
+        JSONObject schedule = metadata != null ? metadata.optJSONObject("schedule") : null;
+        if (schedule == null) {
+            return null;
+        }
+        try {
+            boolean[] days = parseDays(schedule.optJSONArray("days"));
+            int[][] ranges = parseHours(schedule.opt("hours"));
+
+            BitSet active = new BitSet(MINUTES_PER_WEEK);
+            for (int day = 0; day < 7; day++) {
+                if (!days[day]) {
+                    continue;
+                }
+                for (int[] range : ranges) {
+                    int start = day * MINUTES_PER_DAY + range[0];
+                    int end = day * MINUTES_PER_DAY + range[1];
+                    // Ranges past Sunday midnight wrap to Monday
+                    if (end <= MINUTES_PER_WEEK) {
+                        active.set(start, end);
+                    } else {
+                        active.set(start, MINUTES_PER_WEEK);
+                        active.set(0, end - MINUTES_PER_WEEK);
+                    }
+                }
+            }
+            if (active.cardinality() == MINUTES_PER_WEEK) {
+                return null;
+            }
+
+            int[] changes = new int[16];
+            int count = 0;
+            for (int minute = 1; minute < MINUTES_PER_WEEK; minute++) {
+                if (active.get(minute) != active.get(minute - 1)) {
+                    if (count == changes.length) {
+                        changes = Arrays.copyOf(changes, count * 2);
+                    }
+                    changes[count++] = minute;
+                }
+            }
+            return new ViewSchedule(active.get(0), Arrays.copyOf(changes, count));
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Ignoring invalid schedule " + schedule + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean[] parseDays(JSONArray days) {
+        boolean[] result = new boolean[7];
+        if (days == null) {
+            Arrays.fill(result, true);
+            return result;
+        }
+        for (int i = 0; i < days.length(); i++) {
+            String day = days.optString(i, "").trim().toLowerCase();
+            int index = -1;
+            for (int d = 0; d < DAY_NAMES.length; d++) {
+                if (day.startsWith(DAY_NAMES[d])) {
+                    index = d;
+                    break;
+                }
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("unknown day '" + day + "'");
+            }
+            result[index] = true;
+        }
+        return result;
+    }
+
+    // Returns [fromMinute, toMinute) pairs relative to the start of a day; toMinute may exceed a day
+    private static int[][] parseHours(Object hours) {
+        if (hours == null || hours == JSONObject.NULL) {
+            return new int[][] {{0, MINUTES_PER_DAY}};
+        }
+        JSONArray list;
+        if (hours instanceof JSONArray) {
+            list = (JSONArray) hours;
+        } else if (hours instanceof JSONObject) {
+            list = new JSONArray();
+            list.put(hours);
+        } else {
+            throw new IllegalArgumentException("hours must be a range or an array of ranges");
+        }
+        int[][] ranges = new int[list.length()][];
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject range = list.optJSONObject(i);
+            if (range == null) {
+                throw new IllegalArgumentException("hours entries must be objects");
+            }
+            int from = parseTime(range.optString("from", null));
+            int to = parseTime(range.optString("to", null));
+            if (to <= from) {
+                // Overnight range, e.g. 22:00-06:00
+                to += MINUTES_PER_DAY;
+            }
+            ranges[i] = new int[] {from, to};
+        }
+        return ranges;
+    }
+
+    private static int parseTime(String time) {
+        if (time == null) {
+            throw new IllegalArgumentException("range needs from and to");
+        }
+        int colon = time.indexOf(':');
+        try {
+            int hours = Integer.parseInt(colon < 0 ? time.trim() : time.substring(0, colon).trim());
+            int minutes = colon < 0 ? 0 : Integer.parseInt(time.substring(colon + 1).trim());
+            if (hours < 0 || hours > 24 || minutes < 0 || minutes > 59 || (hours == 24 && minutes > 0)) {
+                throw new IllegalArgumentException("invalid time '" + time + "'");
+            }
+            return hours * 60 + minutes;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid time '" + time + "'");
+        }
+    }
+
+    boolean isActive(int minuteOfWeek) {
+        // Each change point at or before the minute flips the state once
+        return activeAtWeekStart ^ ((countAtOrBefore(minuteOfWeek) & 1) == 1);
+    }
+
+    /**
+     * Minutes from minuteOfWeek until the state next flips, or -1 if it never does.
+     */
+    int minutesUntilChange(int minuteOfWeek) {
+        if (changes.length == 0) {
+            return -1;
+        }
+        int index = countAtOrBefore(minuteOfWeek);
+        if (index < changes.length) {
+            return changes[index] - minuteOfWeek;
+        }
+        // Past the last change this week. Week start is only a change if the state there
+        // differs from the end of the week (an odd number of flips).
+        int nextWeekChange = (changes.length & 1) == 1 ? 0 : changes[0];
+        return MINUTES_PER_WEEK - minuteOfWeek + nextWeekChange;
+    }
+
+    private int countAtOrBefore(int minuteOfWeek) {
+        int low = 0;
+        int high = changes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (changes[mid] <= minuteOfWeek) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Minute of the week (Monday 00:00 = 0) in the device's time zone.
+     */
+    static int minuteOfWeek(long timeMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timeMillis);
+        // Calendar.MONDAY is 2, SUNDAY is 1
+        int day = (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+        return day * MINUTES_PER_DAY + calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+    }
+
+    /**
+     * Milliseconds from timeMillis until the start of the minute that is minutesAhead away.
+     */
+    static long millisUntilMinute(long timeMillis, int minutesAhead) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timeMillis);
+        long intoMinute = calendar.get(Calendar.SECOND) * 1000L + calendar.get(Calendar.MILLISECOND);
+        return minutesAhead * 60000L - intoMinute;
+    }
+}
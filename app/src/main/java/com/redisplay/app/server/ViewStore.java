@@ -0,0 +1,488 @@
+package com.redisplay.app.server;
+
+import android.util.Log;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal backing InternalViewManager.
+ *
+ * Every mutation appends one small record per changed view instead of rewriting the
+ * whole catalogue. Each line is "<crc32 hex> <json>"; on load the journal is replayed
+ * until the first torn or corrupt record and truncated there. When most records are
+ * superseded the journal is compacted into a snapshot written to a temp file and
+ * renamed over the journal, so a crash leaves either the old or the new file.
+ */
+class ViewStore {
+    private static final String TAG = "ViewStore";
+    private static final String JOURNAL_FILE = "views.journal";
+    private static final String COMPACT_FILE = "views.journal.tmp";
+    private static final int COMPACT_MIN_RECORDS = 256;
+    private static final int COMPACT_GARBAGE_FACTOR = 4; // Compact once records exceed 4x the live state
+
+    static final String OP_PUT = "put";
+    static final String OP_DELETE = "del";
+    static final String OP_ENABLED = "enabled";
+    static final String OP_CURRENT = "current"; // Only read: current views now live in PlaybackCheckpoint
+
+    private final File journalFile;
+    private final File compactFile;
+    private FileOutputStream journalOut;
+    private int recordCount;
+
+    ViewStore(File directory) {
+        this.journalFile = new File(directory, JOURNAL_FILE);
+        this.compactFile = new File(directory, COMPACT_FILE);
+    }
+
+    synchronized boolean exists() {
+        return journalFile.exists();
+    }
+
+    static JSONObject putRecord(String id, JSONObject view) {
+        return record(OP_PUT, "id", id, "view", view);
+    }
+
+    static JSONObject deleteRecord(String id) {
+        return record(OP_DELETE, "id", id, null, null);
+    }
+
+    static JSONObject enabledRecord(String id, boolean enabled) {
+        return record(OP_ENABLED, "id", id, "value", enabled);
+    }
+
+    private static JSONObject record(String op, String key, Object value, String otherKey, Object otherValue) {
+        try {
+            JSONObject record = new JSONObject();
+            record.put("op", op);
+            record.put(key, value);
+            if (otherKey != null) {
+                record.put(otherKey, otherValue);
+            }
+            return record;
+        } catch (JSONException e) {
+            // Only thrown for null keys or non-finite numbers, which callers never pass
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * The views with the given ids as the full replay would leave them, without building
+     * the JSON of any other view. Ids whose last record deletes them are absent. Stops at
+     * the same damaged record as load, but leaves truncating it to load.
+     */
+    synchronized Map<String, JSONObject> loadViews(Set<String> ids) throws IOException {
+        Map<String, JSONObject> views = new HashMap<>();
+        if (!journalFile.exists() || ids.isEmpty()) {
+            return views;
+        }
+        LineReader reader = new LineReader(new FileInputStream(journalFile));
+        try {
+            byte[] bytes;
+            while ((bytes = reader.next()) != null) {
+                int start = verify(bytes);
+                String[] header = start < 0 ? null : scanHeader(bytes, start, bytes.length);
+                if (header == null) {
+                    break;
+                }
+                String op = header[0];
+                String id = header[1];
+                if (id == null || !ids.contains(id)) {
+                    continue;
+                }
+                if (OP_PUT.equals(op)) {
+                    JSONObject record = decode(bytes, start);
+                    JSONObject view = record != null ? record.optJSONObject("view") : null;
+                    if (view == null) {
+                        break;
+                    }
+                    views.put(id, view);
+                } else if (OP_DELETE.equals(op)) {
+                    views.remove(id);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return views;
+    }
+
+    /**
+     * Replay the journal into the given maps, one record at a time. Puts of views in
+     * preloaded (from loadViews) reuse those objects instead of parsing the record again.
+     */
+    synchronized void load(Map<String, JSONObject> views, Map<String, Boolean> enabled,
+                           Map<String, String> currentViews, Map<String, JSONObject> preloaded) throws IOException {
+        // A leftover temp file is an interrupted compaction; the journal is still intact
+        if (compactFile.exists() && !compactFile.delete()) {
+            Log.w(TAG, "Could not delete stale compaction file");
+        }
+        if (!journalFile.exists()) {
+            return;
+        }
+
+        recordCount = 0;
+        long validLength = 0;
+        boolean corrupt = false;
+        LineReader reader = new LineReader(new FileInputStream(journalFile));
+        try {
+            byte[] bytes;
+            while ((bytes = reader.next()) != null) {
+                int start = verify(bytes);
+                String[] header = start < 0 || preloaded.isEmpty() ? null : scanHeader(bytes, start, bytes.length);
+                if (header != null && OP_PUT.equals(header[0]) && preloaded.containsKey(header[1])) {
+                    views.put(header[1], preloaded.get(header[1]));
+                } else {
+                    JSONObject record = start < 0 ? null : decode(bytes, start);
+                    if (record == null) {
+                        corrupt = true;
+                        break;
+                    }
+                    apply(record, views, enabled, currentViews);
+                }
+                recordCount++;
+                validLength = reader.offset();
+            }
+            if (!corrupt && reader.hasPartialLine()) {
+                // Unterminated last line: the write was interrupted
+                corrupt = true;
+            }
+        } finally {
+            reader.close();
+        }
+
+        if (corrupt) {
+            Log.w(TAG, "Journal damaged after " + recordCount + " records, truncating to " + validLength + " bytes");
+            RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+            try {
+                file.setLength(validLength);
+            } finally {
+                file.close();
+            }
+        }
+        Log.d(TAG, "Replayed " + recordCount + " journal records");
+    }
+
+    /**
+     * Splits the journal into lines, reading it in large blocks.
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[65536];
+        private int position;
+        private int limit;
+        private long offset; // Bytes consumed through the end of the last complete line
+        private final ByteArrayOutputStream partial = new ByteArrayOutputStream(1024);
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        // The next complete line without its '\n', or null at the end of the file
+        byte[] next() throws IOException {
+            while (true) {
+                for (int i = position; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        byte[] line;
+                        if (partial.size() == 0) {
+                            line = Arrays.copyOfRange(buffer, position, i);
+                        } else {
+                            partial.write(buffer, position, i - position);
+                            line = partial.toByteArray();
+                            partial.reset();
+                        }
+                        offset += line.length + 1;
+                        position = i + 1;
+                        return line;
+                    }
+                }
+                partial.write(buffer, position, limit - position);
+                position = 0;
+                limit = in.read(buffer);
+                if (limit <= 0) {
+                    limit = 0;
+                    return null;
+                }
+            }
+        }
+
+        long offset() {
+            return offset;
+        }
+
+        boolean hasPartialLine() {
+            return partial.size() > 0;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static void apply(JSONObject record, Map<String, JSONObject> views, Map<String, Boolean> enabled,
+                              Map<String, String> currentViews) {
+        String op = record.optString("op", "");
+        String id = record.isNull("id") ? null : record.optString("id", null);
+        if (OP_PUT.equals(op)) {
+            JSONObject view = record.optJSONObject("view");
+            if (id != null && view != null) {
+                views.put(id, view);
+            }
+        } else if (OP_DELETE.equals(op)) {
+            views.remove(id);
+            enabled.remove(id);
+        } else if (OP_ENABLED.equals(op)) {
+            if (id != null) {
+                enabled.put(id, record.optBoolean("value", true));
+            }
+        } else if (OP_CURRENT.equals(op)) {
+            String channel = record.optString("channel", null);
+            if (channel != null) {
+                currentViews.put(channel, id);
+            }
+        }
+    }
+
+    /**
+     * Append records and flush them to disk as one write.
+     */
+    synchronized void append(List<JSONObject> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * records.size());
+        for (JSONObject record : records) {
+            buffer.write(encode(record));
+        }
+        if (journalOut == null) {
+            journalOut = new FileOutputStream(journalFile, true);
+        }
+        journalOut.write(buffer.toByteArray());
+        journalOut.flush();
+        journalOut.getFD().sync();
+        recordCount += records.size();
+    }
+
+    /**
+     * True once superseded records dominate the journal and it should be compacted.
+     */
+    synchronized boolean needsCompaction(int liveRecords) {
+        return recordCount > COMPACT_MIN_RECORDS && recordCount > liveRecords * COMPACT_GARBAGE_FACTOR;
+    }
+
+    /**
+     * Replace the journal with a snapshot of the given state.
+     */
+    synchronized void compact(Map<String, JSONObject> views, Map<String, Boolean> enabled) throws IOException {
+        int count = 0;
+        FileOutputStream out = new FileOutputStream(compactFile, false);
+        try {
+            BufferedOutputStream writer = new BufferedOutputStream(out, 65536);
+            for (Map.Entry<String, JSONObject> entry : views.entrySet()) {
+                writer.write(encode(putRecord(entry.getKey(), entry.getValue())));
+                count++;
+            }
+            for (Map.Entry<String, Boolean> entry : enabled.entrySet()) {
+                if (views.containsKey(entry.getKey())) {
+                    writer.write(encode(enabledRecord(entry.getKey(), entry.getValue())));
+                    count++;
+                }
+            }
+            writer.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+
+        closeJournal();
+        if (!compactFile.renameTo(journalFile)) {
+            throw new IOException("Could not replace journal with compacted snapshot");
+        }
+        Log.d(TAG, "Compacted journal from " + recordCount + " to " + count + " records");
+        recordCount = count;
+    }
+
+    synchronized void close() {
+        closeJournal();
+    }
+
+    private void closeJournal() {
+        if (journalOut != null) {
+            try {
+                journalOut.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing journal: " + e.getMessage());
+            }
+            journalOut = null;
+        }
+    }
+
+    private static byte[] encode(JSONObject record) throws IOException {
+        byte[] json = record.toString().getBytes("UTF-8");
+        CRC32 crc = new CRC32();
+        crc.update(json, 0, json.length);
+        byte[] prefix = (Long.toHexString(crc.getValue()) + " ").getBytes("UTF-8");
+        byte[] line = new byte[prefix.length + json.length + 1];
+        System.arraycopy(prefix, 0, line, 0, prefix.length);
+        System.arraycopy(json, 0, line, prefix.length, json.length);
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+    // The record whose JSON starts at start (after verify), or null if it does not parse
+    private static JSONObject decode(byte[] line, int start) {
+        try {
+            return new JSONObject(new String(line, start, line.length - start, "UTF-8"));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Offset of the JSON after a matching checksum prefix, or -1 if the checksum does not verify
+    private static int verify(byte[] line) {
+        int space = -1;
+        for (int i = 0; i < line.length && i < 9; i++) {
+            if (line[i] == ' ') {
+                space = i;
+                break;
+            }
+        }
+        if (space <= 0) {
+            return -1;
+        }
+        try {
+            long expected = Long.parseLong(new String(line, 0, space, "US-ASCII"), 16);
+            CRC32 crc = new CRC32();
+            crc.update(line, space + 1, line.length - space - 1);
+            return crc.getValue() == expected ? space + 1 : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Read the top-level "op" and "id" strings of the JSON object in line[from, to) in one
+     * forward pass, skipping every other value (the view) without building it. Returns
+     * {op, id}, either of which may be null, or null if the JSON is malformed. Works on
+     * the UTF-8 bytes directly: multi-byte characters never contain '"', '\' or brackets.
+     */
+    static String[] scanHeader(byte[] line, int from, int to) {
+        String[] header = new String[2];
+        int pos = skipWhitespace(line, from, to);
+        if (pos >= to || line[pos] != '{') {
+            return null;
+        }
+        pos = skipWhitespace(line, pos + 1, to);
+        if (pos < to && line[pos] == '}') {
+            return header;
+        }
+        while (pos < to) {
+            if (line[pos] != '"') {
+                return null;
+            }
+            int keyEnd = endOfString(line, pos, to);
+            if (keyEnd < 0) {
+                return null;
+            }
+            String key = stringAt(line, pos, keyEnd);
+            pos = skipWhitespace(line, keyEnd, to);
+            if (pos >= to || line[pos] != ':') {
+                return null;
+            }
+            pos = skipWhitespace(line, pos + 1, to);
+            int valueEnd = endOfValue(line, pos, to);
+            if (valueEnd < 0) {
+                return null;
+            }
+            int field = "op".equals(key) ? 0 : "id".equals(key) ? 1 : -1;
+            if (field >= 0 && line[pos] == '"') {
+                header[field] = stringAt(line, pos, valueEnd);
+            }
+            pos = skipWhitespace(line, valueEnd, to);
+            if (pos < to && line[pos] == ',') {
+                pos = skipWhitespace(line, pos + 1, to);
+            } else if (pos < to && line[pos] == '}') {
+                return header;
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static int skipWhitespace(byte[] line, int pos, int to) {
+        while (pos < to && (line[pos] == ' ' || line[pos] == '\t' || line[pos] == '\r' || line[pos] == '\n')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // Index just past the closing quote of the string starting at pos, or -1
+    private static int endOfString(byte[] line, int pos, int to) {
+        for (int i = pos + 1; i < to; i++) {
+            if (line[i] == '\\') {
+                i++;
+            } else if (line[i] == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // Index just past the value starting at pos (string, object, array or literal), or -1
+    private static int endOfValue(byte[] line, int pos, int to) {
+        if (pos >= to) {
+            return -1;
+        }
+        if (line[pos] == '"') {
+            return endOfString(line, pos, to);
+        }
+        int depth = 0;
+        for (int i = pos; i < to; i++) {
+            byte c = line[i];
+            if (c == '"') {
+                i = endOfString(line, i, to) - 1;
+                if (i < 0) {
+                    return -1;
+                }
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) {
+                    return i;
+                }
+                if (--depth == 0) {
+                    return i + 1;
+                }
+            } else if (depth == 0 && (c == ',' || c == ' ' || c == '\t' || c == '\r' || c == '\n')) {
+                return i;
+            }
+        }
+        return depth == 0 ? to : -1;
+    }
+
+    // The string token line[start, end), including its quotes
+    private static String stringAt(byte[] line, int start, int end) {
+        try {
+            String raw = new String(line, start + 1, end - start - 2, "UTF-8");
+            if (raw.indexOf('\\') < 0) {
+                return raw;
+            }
+            // Rare: let the JSON tokenizer resolve the escapes
+            return (String) new JSONTokener(new String(line, start, end - start, "UTF-8")).nextValue();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -9,7 +9,7 @@ public class ConfigManager {
     private static final String KEY_HOME_SCREEN_MODE = "home_screen_mode";
     private static final String KEY_AUTO_UPDATE = "auto_update";
     private static final String KEY_DEBUG_MODE = "debug_mode";
-    private static final String KEY_CONNECTION_TYPE = "connection_type"; // "remote", "internal"
+    private static final String KEY_CONNECTION_TYPE = "connection_type"; // "remote", "websocket", "internal"
     private static final String KEY_CHANNEL_NAME = "channel_name";
     private static final String DEFAULT_URL = "https://public.redisplay.dev";
     private static final String DEFAULT_CONNECTION_TYPE = "remote";
@@ -72,7 +72,7 @@ public class ConfigManager {
     }
     
     public void setConnectionType(String type) {
-        if (type == null || (!type.equals("remote") && !type.equals("internal"))) {
+        if (type == null || (!type.equals("remote") && !type.equals("websocket") && !type.equals("internal"))) {
             type = DEFAULT_CONNECTION_TYPE;
         }
         prefs.edit().putString(KEY_CONNECTION_TYPE, type).apply();
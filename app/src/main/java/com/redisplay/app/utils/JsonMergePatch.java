@@ -0,0 +1,37 @@
+package com.redisplay.app.utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.Iterator;
+
+/**
+ * JSON merge patch (RFC 7386) for org.json objects.
+ *
+ * Used by the internal server to update views in place and by the client to apply
+ * view_update events to the view it is showing.
+ */
+public class JsonMergePatch {
+
+    /**
+     * Apply patch to target in place and return target. Null members remove keys,
+     * object members are merged recursively and anything else (including arrays)
+     * replaces the existing value.
+     */
+    public static JSONObject apply(JSONObject target, JSONObject patch) throws JSONException {
+        Iterator<String> keys = patch.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = patch.get(key);
+            if (value == JSONObject.NULL) {
+                target.remove(key);
+            } else if (value instanceof JSONObject) {
+                Object existing = target.opt(key);
+                JSONObject child = existing instanceof JSONObject ? (JSONObject) existing : new JSONObject();
+                target.put(key, apply(child, (JSONObject) value));
+            } else {
+                target.put(key, value);
+            }
+        }
+        return target;
+    }
+}